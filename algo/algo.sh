@@ -0,0 +1,21 @@
+#!/bin/sh
+# Runs an algo program using the jar and the class-data-sharing archive
+# produced by build.sh. Falls back to the default JDK archive when
+# build/algo.jsa is missing or was created by another JDK.
+#
+# Usage: ./algo.sh <file-path>
+
+ROOT=$(cd "$(dirname "$0")" && pwd)
+JAR="$ROOT/build/algo.jar"
+JSA="$ROOT/build/algo.jsa"
+
+if [ ! -f "$JAR" ]; then
+	echo "$JAR not found, run build.sh first." >&2
+	exit 1
+fi
+
+if [ -f "$JSA" ]; then
+	exec java -Xshare:auto -XX:SharedArchiveFile="$JSA" \
+		$JAVA_OPTS -p "$JAR" -m algo "$@"
+fi
+exec java $JAVA_OPTS -p "$JAR" -m algo "$@"
@@ -0,0 +1,153 @@
+package algo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The DifferentialHarness runs programs from the ProgramGenerator on the
+ * reference engine, the token walking Interpreter, and on the other engines,
+ * then compares them. An engine diverges when its output or its error differs
+ * from the reference; it is slow when its Interpreter takes more than
+ * threshold times the time of the reference.
+ *
+ * Generated programs often run for a few microseconds, so a timing repeats a
+ * program until it has run for at least a millisecond and divides by the
+ * number of runs. Each engine takes a few timings of every program after an
+ * untimed warm-up and keeps the fastest. One line per program and engine is written to
+ * build/differential.csv, and every program that diverges or is slow is saved
+ * as build/differential/<seed>.algo, so that it can be replayed with algo.sh.
+ *
+ * Usage: bench/bench.sh DifferentialHarness [programs] [first seed] [threshold] [engines...]
+ */
+public class DifferentialHarness {
+    private static final int WARM_UP_PROGRAMS = 200;
+    private static final int RUNS = 3;
+    // Below this a timing is mostly noise, a timing repeats a program until it lasts that long
+    private static final long MIN_MEASURED_NANOS = 1_000_000;
+
+    private static final Map<String, Engine> ENGINES = new LinkedHashMap<>();
+
+    static {
+        register(Engine.interpreter("tokens", interpreter -> { }));
+        register(Engine.interpreter("specializing", interpreter -> interpreter.setSpecializing(true)));
+    }
+
+    private static void register(Engine engine) {
+        ENGINES.put(engine.name(), engine);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int programs = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long firstSeed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 1.5;
+        List<Engine> engines = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            Engine engine = ENGINES.get(args[i]);
+            if (engine == null) {
+                System.err.println("Unknown engine " + args[i] + ", expected one of " + ENGINES.keySet());
+                System.exit(1);
+            }
+            engines.add(engine);
+        }
+        if (engines.isEmpty()) {
+            engines.add(ENGINES.get("specializing"));
+        }
+        Engine reference = ENGINES.get("tokens");
+        // The Lexer logs every token on stderr
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+
+        // Lets the JIT compile both engines before anything is timed
+        for (long seed = firstSeed; seed < firstSeed + Math.min(programs, WARM_UP_PROGRAMS); seed++) {
+            String source = ProgramGenerator.generate(seed);
+            reference.run(source);
+            for (Engine engine : engines) {
+                engine.run(source);
+            }
+        }
+
+        Path directory = Paths.get("build", "differential");
+        Files.createDirectories(directory);
+        int divergences = 0;
+        int slowdowns = 0;
+        int errors = 0;
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(
+                Paths.get("build", "differential.csv"), StandardCharsets.UTF_8))) {
+            csv.println("seed,engine,reference_us,engine_us,ratio,result");
+            for (long seed = firstSeed; seed < firstSeed + programs; seed++) {
+                String source = ProgramGenerator.generate(seed);
+                Engine.Outcome expected = fastest(reference, source);
+                if (expected.error != null) {
+                    errors++;
+                }
+                for (Engine engine : engines) {
+                    Engine.Outcome actual = fastest(engine, source);
+                    // A program that does not get past the Parser is not timed
+                    double ratio = expected.nanos == 0 ? 1 : (double) actual.nanos / expected.nanos;
+                    String result = "ok";
+                    if (!actual.agreesWith(expected)) {
+                        result = "divergent";
+                        divergences++;
+                        report(seed, engine, expected, actual);
+                    } else if (ratio > threshold) {
+                        result = "slow";
+                        slowdowns++;
+                        System.out.printf("Seed %d: %s is %.2fx slower than tokens%n", seed, engine.name(), ratio);
+                    }
+                    if (!result.equals("ok")) {
+                        Files.write(directory.resolve(seed + ".algo"), source.getBytes(StandardCharsets.UTF_8));
+                    }
+                    csv.printf("%d,%s,%d,%d,%.3f,%s%n", seed, engine.name(),
+                        expected.nanos / 1000, actual.nanos / 1000, ratio, result);
+                }
+            }
+        }
+        System.out.printf("%d programs (%d ending with an error), %d divergent, %d slow, threshold %.2fx%n",
+            programs, errors, divergences, slowdowns, threshold);
+        if (divergences > 0) {
+            System.exit(2);
+        }
+    }
+
+    // Takes RUNS timings of a program, each repeating it until it has run for
+    // MIN_MEASURED_NANOS, and returns the outcome of the last run with the
+    // fastest time per run
+    private static Engine.Outcome fastest(Engine engine, String source) {
+        Engine.Outcome outcome = null;
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long total = 0;
+            int runs = 0;
+            do {
+                outcome = engine.run(source);
+                total += outcome.nanos;
+                runs++;
+            } while (total < MIN_MEASURED_NANOS && outcome.nanos > 0);
+            nanos = Math.min(nanos, total / runs);
+        }
+        return new Engine.Outcome(outcome.output, outcome.error, nanos);
+    }
+
+    private static void report(long seed, Engine engine, Engine.Outcome expected, Engine.Outcome actual) {
+        System.out.printf("Seed %d: %s diverges from tokens%n", seed, engine.name());
+        System.out.println("  expected: " + describe(expected));
+        System.out.println("  actual:   " + describe(actual));
+    }
+
+    private static String describe(Engine.Outcome outcome) {
+        String output = outcome.output.replace("\n", "\\n");
+        if (output.length() > 200) {
+            output = output.substring(0, 200) + "...";
+        }
+        return outcome.error == null ? output : output + " [" + outcome.error + "]";
+    }
+}
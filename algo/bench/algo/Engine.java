@@ -0,0 +1,79 @@
+package algo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An Engine runs an algo program and returns what it printed and how it ended.
+ * The DifferentialHarness compares engines with the reference token walking
+ * Interpreter; a new execution strategy only has to implement this interface.
+ */
+public interface Engine {
+    String name();
+
+    Outcome run(String source);
+
+    // The result of a run: what ecrire printed, the error message if any, and the
+    // time taken by the Interpreter, 0 when the program did not get past the Parser
+    final class Outcome {
+        final String output;
+        final String error;
+        final long nanos;
+
+        Outcome(String output, String error, long nanos) {
+            this.output = output;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        // Two outcomes agree when they printed the same thing and ended the same way
+        boolean agreesWith(Outcome other) {
+            return output.equals(other.output)
+                && (error == null ? other.error == null : error.equals(other.error));
+        }
+    }
+
+    // An engine running the Interpreter after the Lexer and the Parser, configured by setup
+    static Engine interpreter(String name, Consumer<Interpreter> setup) {
+        return new Engine() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Outcome run(String source) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                long start = 0;
+                String error = null;
+                try {
+                    Lexer lexer = new Lexer(source);
+                    List<Token> tokens = lexer.scanTokens();
+                    List<Diagnostic> diagnostics = new ArrayList<>(lexer.getDiagnostics());
+                    diagnostics.addAll(new Parser(tokens).parse());
+                    if (!diagnostics.isEmpty()) {
+                        error = AlgoResult.failure(diagnostics).getMessage();
+                    } else {
+                        Interpreter interpreter = new Interpreter(tokens);
+                        interpreter.setLogging(false);
+                        interpreter.setOutput(new PrintStream(output, false, StandardCharsets.UTF_8));
+                        setup.accept(interpreter);
+                        // The Lexer and the Parser are the same for every engine, they are not timed
+                        start = System.nanoTime();
+                        interpreter.interpret();
+                    }
+                } catch (AlgoError e) {
+                    error = e.getMessage();
+                } catch (RuntimeException e) {
+                    error = e.toString();
+                }
+                long nanos = start == 0 ? 0 : System.nanoTime() - start;
+                return new Outcome(output.toString(StandardCharsets.UTF_8), error, nanos);
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package algo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static algo.TokenType.*;
+
+/**
+ * The EntierBenchmark measures the cost of overflow checked entier arithmetic
+ * on a workload that never overflows. The checked run is the token walking
+ * Interpreter as it is; the entier mode does not matter here, as WRAP, TRAP
+ * and PROMOTE share the same int fast path and only differ once an operation
+ * has overflowed. The unchecked baseline is an Interpreter whose int addition
+ * and multiplication are the plain (Integer) l + (Integer) r evaluation used
+ * before the overflow checks were added.
+ *
+ * The specializing mode is not measured: its int fast path is inlined in
+ * ExpressionNode and has no unchecked counterpart to compare with.
+ *
+ * Usage: bench/bench.sh EntierBenchmark [iterations] [runs]
+ */
+public class EntierBenchmark {
+    private static final String PROGRAM =
+        "Algorithme bench\n" +
+        "TDO\n" +
+        "i : entier;\n" +
+        "s : entier;\n" +
+        "Debut\n" +
+        "	i <- 0;\n" +
+        "	s <- 0;\n" +
+        "	tantque i < %d faire\n" +
+        "		s <- (s + i * 3 - i div 2) mod 1000003;\n" +
+        "		i <- i + 1;\n" +
+        "	fintantque\n" +
+        "	ecrire(s);\n" +
+        "Fin\n";
+    private static final String[] CONFIGURATIONS = {"unchecked", "checked"};
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+
+        PrintStream out = System.out;
+        PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+        long[][] times = new long[CONFIGURATIONS.length][runs];
+        // The lexer logs every token, discard it
+        System.setErr(nowhere);
+        try {
+            List<Token> tokens = new Lexer(String.format(PROGRAM, iterations)).scanTokens();
+            // The first round warms up every configuration, the others are
+            // interleaved so that they all see the same machine state
+            for (int run = -1; run < runs; run++) {
+                for (int config = 0; config < times.length; config++) {
+                    Interpreter interpreter = config == 0 ? new UncheckedInterpreter(tokens) : new Interpreter(tokens);
+                    interpreter.setOutput(nowhere);
+                    // The per-token trace would cost more than the arithmetic being measured
+                    interpreter.setLogging(false);
+                    long start = System.nanoTime();
+                    interpreter.interpret();
+                    if (run >= 0) times[config][run] = System.nanoTime() - start;
+                }
+            }
+        } finally {
+            System.setErr(out);
+        }
+
+        out.printf("%-10s %12s%n", "arithmetic", "median(ms)");
+        for (int config = 0; config < times.length; config++) {
+            Arrays.sort(times[config]);
+            out.printf("%-10s %12.2f%n", CONFIGURATIONS[config], times[config][runs / 2] / 1e6);
+        }
+        out.printf("checked/unchecked: %.2f%n", (double) times[1][runs / 2] / times[0][runs / 2]);
+    }
+
+    // An Interpreter with the int arithmetic used before the overflow checks,
+    // which silently wraps around
+    private static final class UncheckedInterpreter extends Interpreter {
+        UncheckedInterpreter(List<Token> tokens) {
+            super(tokens);
+        }
+
+        @Override
+        Object addition(TokenType operator, Object left, Object right) {
+            if (left instanceof Integer && right instanceof Integer) {
+                return operator == PLUS ? (Integer) left + (Integer) right : (Integer) left - (Integer) right;
+            }
+            return super.addition(operator, left, right);
+        }
+
+        @Override
+        Object multiplication(Token operator, Object left, Object right) {
+            if (left instanceof Integer && right instanceof Integer) {
+                switch (operator.type) {
+                    case STAR:
+                        return (Integer) left * (Integer) right;
+                    case DIV:
+                        if ((Integer) right == 0) error("Division by zero.");
+                        return (Integer) left / (Integer) right;
+                    case MOD:
+                        if ((Integer) right == 0) error("Modulo by zero.");
+                        return (Integer) left % (Integer) right;
+                    default:
+                        break;
+                }
+            }
+            return super.multiplication(operator, left, right);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package algo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The ParallelBenchmark measures the speedup of 'pour parallele' over the
+ * sequential 'pour' on the same numeric loop, with fork-join pools of 1 to N
+ * workers (N defaults to the number of available processors). Token logging
+ * is turned off so that both loops only pay for the evaluation.
+ *
+ * Usage: bench/bench.sh ParallelBenchmark [iterations] [runs] [max workers]
+ */
+public class ParallelBenchmark {
+    private static final String PROGRAM =
+        "Algorithme bench\n" +
+        "TDO\n" +
+        "i : entier;\n" +
+        "j : entier;\n" +
+        "s : entier;\n" +
+        "n : entier;\n" +
+        "Debut\n" +
+        "	s <- 0;\n" +
+        "	n <- %d;\n" +
+        "	pour %s i de 1 a n %s faire\n" +
+        "		si i mod 3 = 0 ou i mod 5 = 0 alors\n" +
+        "			s <- s + (i * i) mod 1009;\n" +
+        "		sinon\n" +
+        "			s <- s + i mod 7;\n" +
+        "		finsi\n" +
+        "	finpour\n" +
+        "	ecrire(s);\n" +
+        "Fin\n";
+
+    private static final int WARM_UP_RUNS = 10;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        int maxWorkers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        PrintStream out = System.out;
+        PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+        System.setErr(nowhere);
+        List<Token> sequential = new Lexer(String.format(PROGRAM, iterations, "", "")).scanTokens();
+        List<Token> parallel = new Lexer(String.format(PROGRAM, iterations, "parallele", "somme s")).scanTokens();
+
+        out.printf("%-12s %8s %12s %8s%n", "loop", "workers", "median(ms)", "speedup");
+        double baseline = median(sequential, null, runs);
+        out.printf("%-12s %8s %12.2f %8.2f%n", "pour", "-", baseline, 1.0);
+        for (int workers = 1; workers <= maxWorkers; workers++) {
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            try {
+                double time = median(parallel, pool, runs);
+                out.printf("%-12s %8d %12.2f %8.2f%n", "parallele", workers, time, baseline / time);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // Runs the program runs times after warm up runs and returns the median time in ms
+    private static double median(List<Token> tokens, ForkJoinPool pool, int runs) {
+        long[] times = new long[runs];
+        String result = null;
+        for (int run = -WARM_UP_RUNS; run < runs; run++) {
+            Interpreter interpreter = new Interpreter(tokens);
+            interpreter.setLogging(false);
+            interpreter.setSpecializing(true);
+            if (pool != null) {
+                interpreter.setForkJoinPool(pool);
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            interpreter.setOutput(new PrintStream(output));
+            long start = System.nanoTime();
+            interpreter.interpret();
+            if (run >= 0) times[run] = System.nanoTime() - start;
+            // Every run must print the same sum
+            if (result != null && !result.equals(output.toString())) {
+                throw new IllegalStateException("Different results: " + result + " and " + output);
+            }
+            result = output.toString();
+        }
+        Arrays.sort(times);
+        return times[runs / 2] / 1e6;
+    }
+}
@@ -0,0 +1,251 @@
+package algo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The ProgramGenerator produces random, well-typed algo programs from a seed.
+ * A program declares entier and reel variables, initializes them, then runs
+ * nested si, tantque and pour statements with mixed entier and reel arithmetic
+ * and conditions combined with et and ou.
+ *
+ * Every loop has its own counter, which nothing else assigns, and a bound, so
+ * programs always terminate. Entier assignments that multiply are reduced
+ * modulo a prime so values stay small enough to print, although products
+ * still go beyond int and exercise the promotion to long. Divisors are built
+ * so that they are never zero, except for a rare raw div or mod that lets
+ * the harness compare runtime errors too.
+ */
+public class ProgramGenerator {
+    private static final int ENTIERS = 4;
+    private static final int REELS = 3;
+    private static final int MAX_DEPTH = 3;
+    private static final int MAX_STATEMENTS = 5;
+    private static final int MAX_ITERATIONS = 12;
+    private static final int MODULUS = 1000003;
+
+    private final Random random;
+    private final StringBuilder source = new StringBuilder();
+    // Loop counters in use, a counter is reused once its loop is over
+    private int counters = 0;
+    private int maxCounters = 0;
+
+    private ProgramGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    // The generate method returns the program for a seed, the same seed always
+    // giving the same program
+    public static String generate(long seed) {
+        return new ProgramGenerator(seed).program(seed);
+    }
+
+    private String program(long seed) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < ENTIERS; i++) {
+            body.append("\te").append(i).append(" <- ").append(random.nextInt(41) - 20).append(";\n");
+        }
+        for (int i = 0; i < REELS; i++) {
+            body.append("\tr").append(i).append(" <- ").append(reelLiteral()).append(";\n");
+        }
+        int statements = 2 + random.nextInt(MAX_STATEMENTS);
+        for (int i = 0; i < statements; i++) {
+            statement(body, 1);
+        }
+        body.append("\tecrire(");
+        for (int i = 0; i < ENTIERS; i++) {
+            body.append("e").append(i).append(", ");
+        }
+        for (int i = 0; i < REELS; i++) {
+            body.append("r").append(i).append(i < REELS - 1 ? ", " : ");\n");
+        }
+
+        source.append("Algorithme genere").append(Long.toUnsignedString(seed)).append("\nTDO\n");
+        for (int i = 0; i < ENTIERS; i++) {
+            source.append("e").append(i).append(" : entier;\n");
+        }
+        for (int i = 0; i < REELS; i++) {
+            source.append("r").append(i).append(" : reel;\n");
+        }
+        for (int i = 0; i < maxCounters; i++) {
+            source.append("k").append(i).append(" : entier;\n");
+        }
+        source.append("Debut\n").append(body).append("Fin\n");
+        return source.toString();
+    }
+
+    private void statement(StringBuilder out, int depth) {
+        int kind = depth >= MAX_DEPTH ? random.nextInt(2) : random.nextInt(5);
+        switch (kind) {
+            case 0:
+                assignment(out, depth);
+                break;
+            case 1:
+                indent(out, depth).append("ecrire(").append(random.nextBoolean() ? entier(2) : reel(2)).append(");\n");
+                break;
+            case 2:
+                ifStatement(out, depth);
+                break;
+            case 3:
+                whileStatement(out, depth);
+                break;
+            default:
+                forStatement(out, depth);
+                break;
+        }
+    }
+
+    private void assignment(StringBuilder out, int depth) {
+        if (random.nextBoolean()) {
+            String expression = entier(3);
+            if (expression.contains("*")) {
+                expression = "(" + expression + ") mod " + MODULUS;
+            }
+            indent(out, depth).append("e").append(random.nextInt(ENTIERS)).append(" <- ").append(expression).append(";\n");
+        } else {
+            indent(out, depth).append("r").append(random.nextInt(REELS)).append(" <- ").append(reel(3)).append(";\n");
+        }
+    }
+
+    private void ifStatement(StringBuilder out, int depth) {
+        indent(out, depth).append("si ").append(condition(2)).append(" alors\n");
+        block(out, depth + 1);
+        if (random.nextBoolean()) {
+            indent(out, depth).append("sinon\n");
+            block(out, depth + 1);
+        }
+        indent(out, depth).append("finsi\n");
+    }
+
+    private void whileStatement(StringBuilder out, int depth) {
+        String counter = counter();
+        indent(out, depth).append(counter).append(" <- 0;\n");
+        indent(out, depth).append("tantque ").append(counter).append(" < ").append(1 + random.nextInt(MAX_ITERATIONS));
+        if (random.nextBoolean()) {
+            out.append(random.nextBoolean() ? " et " : " ou ").append("(").append(condition(1)).append(")");
+            // An 'ou' could keep the loop running forever, bound it again
+            out.append(" et ").append(counter).append(" < ").append(MAX_ITERATIONS);
+        }
+        out.append(" faire\n");
+        block(out, depth + 1);
+        indent(out, depth + 1).append(counter).append(" <- ").append(counter).append(" + 1;\n");
+        indent(out, depth).append("fintantque\n");
+        counters--;
+    }
+
+    private void forStatement(StringBuilder out, int depth) {
+        String counter = counter();
+        int from = random.nextInt(5) - 2;
+        indent(out, depth).append("pour ").append(counter).append(" de ").append(from)
+            .append(" a ").append(from + random.nextInt(MAX_ITERATIONS)).append(" faire\n");
+        block(out, depth + 1);
+        indent(out, depth).append("finpour\n");
+        counters--;
+    }
+
+    private void block(StringBuilder out, int depth) {
+        int statements = 1 + random.nextInt(3);
+        for (int i = 0; i < statements; i++) {
+            statement(out, depth);
+        }
+    }
+
+    private String counter() {
+        String counter = "k" + counters++;
+        maxCounters = Math.max(maxCounters, counters);
+        return counter;
+    }
+
+    // A boolean expression: comparisons combined with et and ou
+    private String condition(int depth) {
+        if (depth > 0 && random.nextInt(3) == 0) {
+            String operator = random.nextBoolean() ? " et " : " ou ";
+            return "(" + condition(depth - 1) + ")" + operator + "(" + condition(depth - 1) + ")";
+        }
+        String[] operators = {" < ", " > ", " <= ", " >= ", " = ", " != "};
+        String operator = operators[random.nextInt(operators.length)];
+        if (random.nextBoolean()) {
+            return entier(1) + operator + entier(1);
+        }
+        // '!=' compares with equals and needs operands of the same type
+        if (operator.equals(" != ")) {
+            return reel(1) + operator + reel(1);
+        }
+        return reel(1) + operator + (random.nextBoolean() ? entier(1) : reel(1));
+    }
+
+    // An expression of type entier
+    private String entier(int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return random.nextInt(3) == 0 ? String.valueOf(random.nextInt(100)) : entierVariable();
+        }
+        switch (random.nextInt(6)) {
+            case 0: return entier(depth - 1) + " + " + entier(depth - 1);
+            case 1: return entier(depth - 1) + " - " + entier(depth - 1);
+            case 2: return entier(depth - 1) + " * " + entier(depth - 1);
+            case 3: return entier(depth - 1) + " div " + divisor(depth - 1);
+            case 4: return entier(depth - 1) + " mod " + divisor(depth - 1);
+            default: return "(" + entier(depth - 1) + ")";
+        }
+    }
+
+    // A divisor that cannot be zero, except once in a while
+    private String divisor(int depth) {
+        if (random.nextInt(50) == 0) {
+            return entierVariable();
+        }
+        return random.nextBoolean()
+            ? String.valueOf(1 + random.nextInt(9))
+            : "(" + entier(depth) + " mod 7 + 8)";
+    }
+
+    // An expression of type reel, which can mix in entier operands
+    private String reel(int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return random.nextInt(3) == 0 ? reelLiteral() : "r" + random.nextInt(REELS);
+        }
+        switch (random.nextInt(6)) {
+            case 0: return reel(depth - 1) + " + " + mixed(depth - 1);
+            case 1: return mixed(depth - 1) + " - " + reel(depth - 1);
+            case 2: return reel(depth - 1) + " * " + mixed(depth - 1);
+            case 3: return reel(depth - 1) + " / (" + reel(0) + " * " + reel(0) + " + 1.5)";
+            case 4: return "-" + "r" + random.nextInt(REELS);
+            default: return "(" + reel(depth - 1) + ")";
+        }
+    }
+
+    // An entier operand of a reel operator is parenthesized, so that its div
+    // and mod do not apply to the reel on their left
+    private String mixed(int depth) {
+        return random.nextBoolean() ? reel(depth) : "(" + entier(depth) + ")";
+    }
+
+    private String entierVariable() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < ENTIERS; i++) {
+            names.add("e" + i);
+        }
+        // Counters of enclosing loops can be read, not written
+        for (int i = 0; i < counters; i++) {
+            names.add("k" + i);
+        }
+        return names.get(random.nextInt(names.size()));
+    }
+
+    private String reelLiteral() {
+        return random.nextInt(20) + "." + random.nextInt(100);
+    }
+
+    private static StringBuilder indent(StringBuilder out, int depth) {
+        for (int i = 0; i < depth; i++) {
+            out.append('\t');
+        }
+        return out;
+    }
+
+    // Prints the program for a seed, to reproduce a report of the harness
+    public static void main(String[] args) {
+        System.out.print(generate(args.length > 0 ? Long.parseLong(args[0]) : 0));
+    }
+}
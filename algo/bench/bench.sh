@@ -0,0 +1,22 @@
+#!/bin/sh
+# Compiles the benchmarks in bench/algo against build/classes and runs one.
+# The benchmarks are in the algo package so that they can drive the Lexer and
+# the Interpreter directly; they run on the class path, outside the module.
+#
+# Usage: bench/bench.sh <BenchmarkClass> [args...]
+
+set -e
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+
+if [ ! -d "$ROOT/build/classes" ]; then
+	echo "Run build.sh first." >&2
+	exit 1
+fi
+
+mkdir -p "$ROOT/build/bench"
+javac -d "$ROOT/build/bench" -cp "$ROOT/build/classes" "$ROOT"/bench/algo/*.java
+BENCHMARK=$1
+shift
+# Benchmarks that write reports write them under build/
+cd "$ROOT"
+exec java -cp "$ROOT/build/classes:$ROOT/build/bench" "algo.$BENCHMARK" "$@"
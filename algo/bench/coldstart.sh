@@ -0,0 +1,68 @@
+#!/bin/sh
+# Cold-start benchmark: measures the time from launching the JVM until the
+# first line of program output, for every program in examples/. The "before"
+# column runs a jar built from the sources before the start-up work, with the
+# keyword HashMap and java.desktop; the other two run the jar built by
+# build.sh, without and with its application CDS archive.
+#
+# Usage: bench/coldstart.sh [runs] [before revision]
+#   runs             runs per configuration, 20 by default
+#   before revision  the sources of the "before" jar, by default the revision
+#                    before this benchmark was added
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR="$ROOT/build/algo.jar"
+JSA="$ROOT/build/algo.jsa"
+RUNS=${1:-20}
+BEFORE=${2:-$(git -C "$ROOT" log --diff-filter=A --format=%H -- bench/coldstart.sh | tail -n 1)^}
+
+if [ ! -f "$JAR" ] || [ ! -f "$JSA" ]; then
+	echo "Run build.sh first." >&2
+	exit 1
+fi
+
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+cd "$WORK"
+
+# Build the "before" jar from the sources of that revision
+mkdir before
+if ! git -C "$ROOT" archive --format=tar "$BEFORE" src | tar -x -C before; then
+	echo "Cannot read the sources of $BEFORE." >&2
+	exit 1
+fi
+javac -d before/classes $(find before/src -name '*.java')
+jar --create --file before/algo.jar -C before/classes .
+
+now_ns() {
+	date +%s%N
+}
+
+# Prints the median time to first output, in milliseconds, of $RUNS runs of
+# a program with a jar.
+measure() {
+	program=$1
+	jar=$2
+	shift 2
+	i=0
+	: > times
+	while [ $i -lt "$RUNS" ]; do
+		t0=$(now_ns)
+		java "$@" -p "$jar" -m algo/algo.Algo "$program" | {
+			read -r _
+			t1=$(now_ns)
+			echo $(( (t1 - t0) / 1000000 )) >> times
+			cat > /dev/null
+		}
+		i=$((i + 1))
+	done
+	sort -n times | awk '{ t[NR] = $1 } END { print t[int((NR + 1) / 2)] }'
+}
+
+printf '%-20s %12s %16s %16s\n' program "before(ms)" "no archive(ms)" "archive(ms)"
+for program in "$ROOT"/examples/*.algo; do
+	before=$(measure "$program" before/algo.jar -Xshare:auto)
+	plain=$(measure "$program" "$JAR" -Xshare:auto)
+	archived=$(measure "$program" "$JAR" -Xshare:auto -XX:SharedArchiveFile="$JSA")
+	printf '%-20s %12s %16s %16s\n' "$(basename "$program")" "$before" "$plain" "$archived"
+done
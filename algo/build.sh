@@ -0,0 +1,36 @@
+#!/bin/sh
+# Builds the algo module into build/algo.jar and creates an application
+# class-data-sharing archive (build/algo.jsa) from a training run over the
+# programs in examples/. The archive is used by algo.sh to cut cold start.
+set -e
+
+ROOT=$(cd "$(dirname "$0")" && pwd)
+BUILD="$ROOT/build"
+
+rm -rf "$BUILD"
+mkdir -p "$BUILD/classes" "$BUILD/training"
+
+# Compile the module and package it as a modular jar: CDS cannot archive
+# classes loaded from an exploded directory.
+javac -d "$BUILD/classes" $(find "$ROOT/src" -name '*.java')
+jar --create --file "$BUILD/algo.jar" --main-class algo.Algo -C "$BUILD/classes" .
+
+# Training run: record the classes loaded by every example program.
+# The interpreter writes logs.log to the working directory, so run it in a
+# scratch directory.
+cd "$BUILD/training"
+for program in "$ROOT"/examples/*.algo; do
+	name=$(basename "$program" .algo)
+	java -Xshare:off -XX:DumpLoadedClassList="$name.classlist" \
+		-p "$BUILD/algo.jar" -m algo "$program" > /dev/null
+done
+cat ./*.classlist | sort -u > "$BUILD/algo.classlist"
+cd "$ROOT"
+
+# Dump the archive. The module path must be the same at dump and run time.
+java -Xshare:dump -XX:SharedClassListFile="$BUILD/algo.classlist" \
+	-XX:SharedArchiveFile="$BUILD/algo.jsa" \
+	-p "$BUILD/algo.jar" -m algo > "$BUILD/cds-dump.log" 2>&1
+
+rm -rf "$BUILD/training"
+echo "Built $BUILD/algo.jar and $BUILD/algo.jsa"
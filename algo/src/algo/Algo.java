@@ -3,6 +3,8 @@ package algo;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -11,35 +13,129 @@ import java.util.List;
  * and interpret the tokens to execute the program.
  */
 public class Algo {
-    public static String runAlgo(String sourceCode) {
+    public static AlgoResult runAlgo(String sourceCode) {
+        long startTime = System.nanoTime();
+        List<Token> tokens = Collections.emptyList();
+        AlgoResult result = null;
+        PrintStream stderr = System.err;
+        PrintStream logCapture = null;
         try {
             // Redirect stderr to a log file
-        	PrintStream logCapture =  new PrintStream(new FileOutputStream("logs.log"));
+        	logCapture =  new PrintStream(new FileOutputStream("logs.log"));
             System.setErr(logCapture);
 
-            // Run the lexer and interpreter
+            // Run the lexer and the parser, they report all the errors they find
+            // The events are only created when a recording can see them
+            boolean recording = AlgoEvents.isEnabled();
+            LexEvent lexEvent = recording ? new LexEvent() : null;
+            if (recording) lexEvent.begin();
             Lexer lexer = new Lexer(sourceCode);
-            List<Token> tokens = lexer.scanTokens();
-            Interpreter interpreter = new Interpreter(tokens);
-            interpreter.interpret();
+            tokens = lexer.scanTokens();
+            List<Diagnostic> diagnostics = new ArrayList<>(lexer.getDiagnostics());
+            if (recording) lexEvent.end();
+            String program = programName(tokens);
+            if (recording && lexEvent.shouldCommit()) {
+                lexEvent.program = program;
+                lexEvent.tokenCount = tokens.size();
+                lexEvent.errorCount = diagnostics.size();
+                lexEvent.commit();
+            }
 
-            return "Program executed successfully.";
-        } catch (Exception ex) {
+            ParseEvent parseEvent = recording ? new ParseEvent() : null;
+            if (recording) parseEvent.begin();
+            List<Diagnostic> syntaxErrors = new Parser(tokens).parse();
+            if (recording) parseEvent.end();
+            if (recording && parseEvent.shouldCommit()) {
+                parseEvent.program = program;
+                parseEvent.tokenCount = tokens.size();
+                parseEvent.errorCount = syntaxErrors.size();
+                parseEvent.commit();
+            }
+            diagnostics.addAll(syntaxErrors);
+            if (!diagnostics.isEmpty()) {
+                for (Diagnostic diagnostic : diagnostics) {
+                    System.err.println("Error during parsing: " + diagnostic);
+                }
+                result = AlgoResult.failure(diagnostics);
+                return result;
+            }
+
+            // Run the interpreter, it stops at the first error
+            ExecuteEvent executeEvent = recording ? new ExecuteEvent() : null;
+            if (recording) executeEvent.begin();
+            Interpreter interpreter = new Interpreter(tokens);
+            // Saves snapshots at loop back-edges when algo.checkpoint is set
+            Checkpoint checkpoint = Checkpoint.fromProperties(sourceCode);
+            if (checkpoint != null) {
+                interpreter.setCheckpoint(checkpoint);
+            }
+            try {
+                interpreter.interpret();
+                if (checkpoint != null) {
+                    checkpoint.finish();
+                }
+                result = AlgoResult.success();
+            } finally {
+                if (checkpoint != null) {
+                    checkpoint.close();
+                }
+                if (recording) executeEvent.end();
+                if (recording && executeEvent.shouldCommit()) {
+                    executeEvent.program = program;
+                    executeEvent.tokenCount = tokens.size();
+                    executeEvent.statementsExecuted = interpreter.getStatementsExecuted();
+                    executeEvent.success = result != null;
+                    executeEvent.commit();
+                }
+            }
+            return result;
+        } catch (AlgoError ex) {
             // Add the error message to log file
             System.err.println("Error during execution: " + ex.getMessage());
-            return ex.getMessage();
+            result = AlgoResult.failure(Collections.singletonList(ex.getDiagnostic()));
+            return result;
+        } catch (Exception ex) {
+            System.err.println("Error during execution: " + ex.getMessage());
+            result = AlgoResult.failure(Collections.singletonList(
+                    new Diagnostic("INTERPRETER", 0, 0, null, String.valueOf(ex.getMessage()))));
+            return result;
         } finally {
             // Restore stderr
-            System.setErr(System.err);
+            System.setErr(stderr);
+            if (logCapture != null) {
+                logCapture.close();
+            }
+            AlgoMetrics.INSTANCE.record(tokens.size(), System.nanoTime() - startTime,
+                    result != null && result.isSuccess());
         }
     }
 
+    // The programName method returns the name given after 'Algorithme', or an empty string
+    static String programName(List<Token> tokens) {
+        if (tokens.size() > 1 && tokens.get(0).type == TokenType.ALGO
+                && tokens.get(1).type == TokenType.IDENTIFIER) {
+            return tokens.get(1).lexeme;
+        }
+        return "";
+    }
+
     public static void main(String[] args) {
+        // Expose the metrics over JMX when asked to
+        if (Boolean.getBoolean("algo.jmx")) {
+            AlgoMetrics.register();
+        }
         // Check if the file path is provided as an argument
     	if (args.length != 1) {
             System.err.println("Usage: java Algo <file-path>");
             return;
         }
+        // Check the entier mode once, rather than in every interpreter
+        try {
+            EntierMode.fromProperty();
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            return;
+        }
         String filePath = args[0];
         String output;
 
@@ -47,7 +143,7 @@ public class Algo {
             // Read the source code from the file
             String fileContent = new String(Files.readAllBytes(Paths.get(filePath)));
             // Run the algorithm
-            output = runAlgo(fileContent);
+            output = runAlgo(fileContent).getMessage();
         } catch (IOException ex) {
             // Handle file errors
             System.err.println("File error: could not open " + ex.getMessage());
@@ -0,0 +1,21 @@
+package algo;
+/**
+ * The AlgoError exception is thrown to abort execution when a Diagnostic
+ * cannot be recovered from. It does not fill in its stack trace: the
+ * diagnostic already tells where the error is in the algo program, and the
+ * Java frames of the interpreter are of no use to the user.
+ */
+public class AlgoError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Diagnostic diagnostic;
+
+    AlgoError(Diagnostic diagnostic) {
+        super(diagnostic.toString(), null, false, false);
+        this.diagnostic = diagnostic;
+    }
+
+    public Diagnostic getDiagnostic() {
+        return diagnostic;
+    }
+}
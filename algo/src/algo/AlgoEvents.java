@@ -0,0 +1,20 @@
+package algo;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * The AlgoEvents class decides whether the flight recorder events are created.
+ * The first Event subclass to be loaded brings in about a hundred classes of
+ * jdk.jfr, which would triple the start-up time of a short program, so the
+ * events are only created once a recording has been started in this JVM, or
+ * when the algo.jfr system property is true. Asking only loads FlightRecorder.
+ */
+final class AlgoEvents {
+    private AlgoEvents() {
+    }
+
+    // The isEnabled method tells whether events should be created and committed
+    static boolean isEnabled() {
+        return Boolean.getBoolean("algo.jfr") || FlightRecorder.isInitialized();
+    }
+}
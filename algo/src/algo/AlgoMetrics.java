@@ -0,0 +1,99 @@
+package algo;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The AlgoMetrics class keeps running totals over all the programs run by
+ * Algo.runAlgo. Recording a run only updates counters and a small ring of
+ * recent latencies; the percentiles are computed when JMX reads them.
+ * The MBean is registered by register(), or by Algo.main when the
+ * algo.jmx system property is true.
+ */
+public final class AlgoMetrics implements AlgoMetricsMBean {
+    static final AlgoMetrics INSTANCE = new AlgoMetrics();
+    static final String OBJECT_NAME = "algo:type=AlgoMetrics";
+
+    // Number of recent runs the latency percentiles are computed over
+    private static final int WINDOW = 1024;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final long[] latencies = new long[WINDOW];
+    private long recorded = 0;
+
+    private AlgoMetrics() {
+    }
+
+    // The register method exposes the metrics on the platform MBean server
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    // The record method adds one run of Algo.runAlgo to the totals
+    void record(int tokenCount, long durationNanos, boolean success) {
+        runs.increment();
+        if (!success) {
+            failures.increment();
+        }
+        tokens.add(tokenCount);
+        nanos.add(durationNanos);
+        synchronized (latencies) {
+            latencies[(int) (recorded++ % WINDOW)] = durationNanos;
+        }
+    }
+
+    @Override
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public double getTokensPerSecond() {
+        long total = nanos.sum();
+        return total == 0 ? 0 : tokens.sum() * 1e9 / total;
+    }
+
+    private double percentile(double p) {
+        long[] window;
+        synchronized (latencies) {
+            window = Arrays.copyOf(latencies, (int) Math.min(recorded, WINDOW));
+        }
+        if (window.length == 0) {
+            return 0;
+        }
+        Arrays.sort(window);
+        int rank = (int) Math.ceil(p * window.length) - 1;
+        return window[Math.max(rank, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,12 @@
+package algo;
+/**
+ * The AlgoMetricsMBean interface is the JMX view of AlgoMetrics.
+ * Latencies are measured over the whole of Algo.runAlgo.
+ */
+public interface AlgoMetricsMBean {
+    long getRuns();
+    long getFailures();
+    double getLatencyP50Millis();
+    double getLatencyP99Millis();
+    double getTokensPerSecond();
+}
@@ -0,0 +1,54 @@
+package algo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The AlgoResult class is the outcome of Algo.runAlgo. A program either runs
+ * to completion, or fails with the diagnostics collected by the lexer and the
+ * parser (all of them) or with the error that stopped the interpreter.
+ */
+public final class AlgoResult {
+    static final String SUCCESS_MESSAGE = "Program executed successfully.";
+
+    private final List<Diagnostic> diagnostics;
+
+    private AlgoResult(List<Diagnostic> diagnostics) {
+        this.diagnostics = Collections.unmodifiableList(diagnostics);
+    }
+
+    static AlgoResult success() {
+        return new AlgoResult(Collections.emptyList());
+    }
+
+    static AlgoResult failure(List<Diagnostic> diagnostics) {
+        return new AlgoResult(diagnostics);
+    }
+
+    public boolean isSuccess() {
+        return diagnostics.isEmpty();
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    // The getMessage method returns the success message, or one line per diagnostic
+    public String getMessage() {
+        if (isSuccess()) {
+            return SUCCESS_MESSAGE;
+        }
+        StringBuilder message = new StringBuilder();
+        for (Diagnostic diagnostic : diagnostics) {
+            if (message.length() > 0) {
+                message.append(System.lineSeparator());
+            }
+            message.append(diagnostic);
+        }
+        return message.toString();
+    }
+
+    public String toString() {
+        return getMessage();
+    }
+}
@@ -0,0 +1,148 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * The Chaine class is the value of a string built at run time. String values
+ * of the interpreter are CharSequences: a literal is a plain String, and the
+ * results of concatenation, indexing and sous_chaine are Chaines.
+ *
+ * A Chaine is an immutable view on a range of a shared, append-only buffer.
+ * Appending to the Chaine that ends the buffer writes in place and returns a
+ * longer view, so repeated concatenation as in s <- s + x is amortized O(1)
+ * per character; appending to any other Chaine copies it into a new buffer.
+ * Substrings are views on the same buffer and are created in O(1).
+ */
+final class Chaine implements CharSequence {
+    // The storage shared by the Chaines built from it. Characters below size
+    // are never modified; the array is replaced by a larger copy when full.
+    private static final class Buffer {
+        char[] chars;
+        int size;
+
+        Buffer(char[] chars, int size) {
+            this.chars = chars;
+            this.size = size;
+        }
+    }
+
+    private final Buffer buffer;
+    // The buffer array at the time this Chaine was created, it holds this range
+    private final char[] chars;
+    private final int start;
+    private final int length;
+
+    private Chaine(Buffer buffer, char[] chars, int start, int length) {
+        this.buffer = buffer;
+        this.chars = chars;
+        this.start = start;
+        this.length = length;
+    }
+
+    // The concat method returns left followed by right
+    static Chaine concat(CharSequence left, CharSequence right) {
+        if (left instanceof Chaine) {
+            return ((Chaine) left).append(right);
+        }
+        int size = left.length();
+        char[] chars = new char[capacity(size + right.length())];
+        copy(left, chars, 0);
+        return new Chaine(new Buffer(chars, size), chars, 0, size).append(right);
+    }
+
+    private Chaine append(CharSequence other) {
+        int count = other.length();
+        if (count == 0) {
+            return this;
+        }
+        // The buffer is shared between the Chaines built from it, which may be
+        // used by the workers of a parallel loop
+        synchronized (buffer) {
+            int end = start + length;
+            if (end == buffer.size) {
+                if (buffer.chars.length - end < count) {
+                    buffer.chars = Arrays.copyOf(buffer.chars, capacity(end + count));
+                }
+                copy(other, buffer.chars, end);
+                buffer.size = end + count;
+                return new Chaine(buffer, buffer.chars, start, length + count);
+            }
+        }
+        char[] copy = new char[capacity(length + count)];
+        System.arraycopy(chars, start, copy, 0, length);
+        copy(other, copy, length);
+        return new Chaine(new Buffer(copy, length + count), copy, 0, length + count);
+    }
+
+    // Leaves room for as many characters again, so that appends are amortized
+    private static int capacity(int size) {
+        return Math.max(16, size * 2);
+    }
+
+    private static void copy(CharSequence source, char[] target, int offset) {
+        if (source instanceof Chaine) {
+            Chaine chaine = (Chaine) source;
+            System.arraycopy(chaine.chars, chaine.start, target, offset, chaine.length);
+        } else if (source instanceof String) {
+            ((String) source).getChars(0, source.length(), target, offset);
+        } else {
+            for (int i = 0; i < source.length(); i++) {
+                target[offset + i] = source.charAt(i);
+            }
+        }
+    }
+
+    // The compare method compares two strings character by character,
+    // without building a String from a Chaine
+    static int compare(CharSequence left, CharSequence right) {
+        int common = Math.min(left.length(), right.length());
+        for (int i = 0; i < common; i++) {
+            char l = left.charAt(i);
+            char r = right.charAt(i);
+            if (l != r) {
+                return l - r;
+            }
+        }
+        return left.length() - right.length();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chars[start + index];
+    }
+
+    @Override
+    public Chaine subSequence(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException(from + ".." + to);
+        }
+        return new Chaine(buffer, chars, start + from, to - from);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Chaine && compare(this, (Chaine) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, start, length);
+    }
+}
@@ -0,0 +1,195 @@
+package algo;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Checkpoint class decides when the Interpreter saves a Snapshot and where.
+ * The Interpreter asks it at every loop back-edge, and a snapshot is written
+ * once every given number of iterations or once a given time has passed.
+ *
+ * It also owns the stream ecrire prints to, so that a snapshot records how
+ * many bytes were printed. When that stream is a file, resuming truncates it
+ * to that offset and nothing is printed twice; on stdout, what was printed
+ * after the last snapshot is printed again.
+ *
+ * A snapshot is only resumed by the program it was taken from, which is
+ * recognized by the SHA-256 hash of its source. It is deleted once the
+ * program has run to the end.
+ */
+final class Checkpoint {
+    // The default interval when neither an iteration count nor a time is given
+    private static final long DEFAULT_MILLIS = 60_000;
+
+    private final Path file;
+    private final byte[] programHash;
+    private final long everyIterations;
+    private final long everyNanos;
+    private final Snapshot resumed;
+    private final CountingStream counter;
+    private final FileOutputStream outputFile;
+    private final PrintStream output;
+    private long iterations = 0;
+    private long lastSave = System.nanoTime();
+
+    // The fromProperties method returns the checkpoint configured by the
+    // system properties, or null when algo.checkpoint is not set:
+    //   algo.checkpoint              the snapshot file
+    //   algo.checkpoint.iterations   loop iterations between two snapshots
+    //   algo.checkpoint.millis       milliseconds between two snapshots
+    //   algo.resume                  continue from the snapshot if it is one of this program
+    //   algo.output                  the file ecrire prints to instead of stdout
+    static Checkpoint fromProperties(String sourceCode) throws IOException {
+        String file = System.getProperty("algo.checkpoint");
+        if (file == null) {
+            return null;
+        }
+        long iterations = Long.getLong("algo.checkpoint.iterations", 0);
+        long millis = Long.getLong("algo.checkpoint.millis", iterations > 0 ? 0 : DEFAULT_MILLIS);
+        String output = System.getProperty("algo.output");
+        return new Checkpoint(Paths.get(file), sourceCode, iterations, millis,
+                Boolean.getBoolean("algo.resume"), output == null ? null : Paths.get(output));
+    }
+
+    Checkpoint(Path file, String sourceCode, long everyIterations, long everyMillis,
+               boolean resume, Path outputPath) throws IOException {
+        this.file = file;
+        this.programHash = hash(sourceCode);
+        this.everyIterations = everyIterations;
+        this.everyNanos = everyMillis * 1_000_000;
+        this.resumed = resume ? load() : null;
+        long offset = resumed == null ? 0 : resumed.outputOffset;
+        if (outputPath == null) {
+            outputFile = null;
+            counter = new CountingStream(System.out, offset);
+        } else {
+            if (resumed != null) {
+                // Drops what was printed after the snapshot
+                try (FileChannel channel = FileChannel.open(outputPath,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    if (channel.size() > offset) {
+                        channel.truncate(offset);
+                    }
+                }
+            }
+            outputFile = new FileOutputStream(outputPath.toFile(), resumed != null);
+            counter = new CountingStream(new BufferedOutputStream(outputFile), offset);
+        }
+        output = new PrintStream(counter, false, StandardCharsets.UTF_8);
+    }
+
+    // Reads the snapshot to resume from, ignoring a missing, unreadable or foreign one
+    private Snapshot load() {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            Snapshot snapshot = Snapshot.read(file);
+            if (!Arrays.equals(snapshot.programHash, programHash)) {
+                System.err.println("[CHECKPOINT] " + file + " was saved by another program, starting over.");
+                return null;
+            }
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[CHECKPOINT] Cannot read " + file + ", starting over: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] hash(String sourceCode) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(sourceCode.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // The getResumed method returns the snapshot the program continues from, or null
+    Snapshot getResumed() {
+        return resumed;
+    }
+
+    // The getOutput method returns the stream ecrire prints to
+    PrintStream getOutput() {
+        return output;
+    }
+
+    // The isDue method is called at every loop back-edge and tells whether
+    // a snapshot should be saved there
+    boolean isDue() {
+        iterations++;
+        if (everyIterations > 0 && iterations >= everyIterations) {
+            return true;
+        }
+        return everyNanos > 0 && System.nanoTime() - lastSave >= everyNanos;
+    }
+
+    // The save method writes a snapshot of the given state. The output is
+    // flushed first, so the file holds at least the recorded offset. A
+    // failure is logged and the program goes on without this snapshot.
+    void save(long statementsExecuted, List<Interpreter.Frame> frames, Map<String, Interpreter.Variable> variables) {
+        iterations = 0;
+        lastSave = System.nanoTime();
+        try {
+            output.flush();
+            if (outputFile != null) {
+                outputFile.getFD().sync();
+            }
+            new Snapshot(programHash, counter.count, statementsExecuted, frames, variables).write(file);
+        } catch (IOException e) {
+            System.err.println("[CHECKPOINT] Cannot write " + file + ": " + e.getMessage());
+        }
+    }
+
+    // The finish method is called when the program has run to the end, its
+    // snapshot is not needed anymore
+    void finish() throws IOException {
+        output.flush();
+        Files.deleteIfExists(file);
+    }
+
+    // The close method flushes the output and closes it when it is a file
+    void close() {
+        output.flush();
+        if (outputFile != null) {
+            output.close();
+        }
+    }
+
+    // Counts the bytes written to the output, starting from the offset of the resumed snapshot
+    private static final class CountingStream extends FilterOutputStream {
+        long count;
+
+        CountingStream(OutputStream out, long count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
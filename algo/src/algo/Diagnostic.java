@@ -0,0 +1,50 @@
+package algo;
+/**
+ * The Diagnostic class describes a single error found while lexing, parsing
+ * or executing a program. It is a plain value object: unlike an exception it
+ * carries no stack trace, so collecting many of them is cheap.
+ */
+public final class Diagnostic {
+    final String phase;
+    final int line;
+    final int column;
+    final String lexeme;
+    final String message;
+
+    Diagnostic(String phase, int line, int column, String lexeme, String message) {
+        this.phase = phase;
+        this.line = line;
+        this.column = column;
+        this.lexeme = lexeme;
+        this.message = message;
+    }
+
+    // Builds a diagnostic located at the given token
+    static Diagnostic at(String phase, Token token, String message) {
+        return new Diagnostic(phase, token.line, token.column, token.lexeme, message);
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String toString() {
+        String location = "[" + phase + "] Error at line " + line + ", column " + column;
+        if (lexeme != null) {
+            location += " Token: " + lexeme;
+        }
+        return location + " : " + message;
+    }
+}
@@ -0,0 +1,154 @@
+package algo;
+
+import java.math.BigInteger;
+
+import static algo.TokenType.*;
+
+/**
+ * The EntierArithmetic class implements the slow paths of entier arithmetic.
+ * An entier value is an Integer, or in PROMOTE mode a Long or a BigInteger
+ * when it does not fit in the smaller type; results are always narrowed back,
+ * so Integer stays the common case. The Interpreter handles int operands that
+ * do not overflow itself and only calls this class for the rest.
+ * A method returns null when the result overflows in TRAP mode.
+ */
+final class EntierArithmetic {
+    private static final BigInteger INT_MIN = BigInteger.valueOf(Integer.MIN_VALUE);
+    private static final BigInteger INT_MAX = BigInteger.valueOf(Integer.MAX_VALUE);
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private final EntierMode mode;
+
+    EntierArithmetic(EntierMode mode) {
+        this.mode = mode;
+    }
+
+    EntierMode getMode() {
+        return mode;
+    }
+
+    // The literal method returns the value of an entier literal. A literal that
+    // does not fit in an int is handled like an overflowing result: it wraps
+    // around in WRAP mode, is null in TRAP mode and is promoted in PROMOTE mode.
+    // The token walking Interpreter parses a literal every time it is evaluated,
+    // so the int case must not go through a BigInteger.
+    Object literal(String lexeme) {
+        try {
+            return Integer.parseInt(lexeme);
+        } catch (NumberFormatException e) {
+            BigInteger value = new BigInteger(lexeme);
+            if (mode == EntierMode.WRAP) {
+                return value.intValue();
+            }
+            if (mode == EntierMode.TRAP) {
+                return null;
+            }
+            return narrow(value);
+        }
+    }
+
+    static boolean isEntier(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof BigInteger;
+    }
+
+    // The arithmetic method applies +, -, *, div or mod to two entier operands
+    Object arithmetic(TokenType operator, Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            int a = (Integer) left;
+            int b = (Integer) right;
+            switch (operator) {
+                case PLUS: return fromLong((long) a + b, a + b);
+                case MINUS: return fromLong((long) a - b, a - b);
+                case STAR: return fromLong((long) a * b, a * b);
+                case DIV: return fromLong((long) a / b, a / b);
+                default: return a % b;
+            }
+        }
+        if (mode != EntierMode.PROMOTE) {
+            // Only PROMOTE creates wider values, this is not reachable otherwise
+            throw new IllegalStateException("Entier operands wider than int in " + mode + " mode");
+        }
+        if (!(left instanceof BigInteger) && !(right instanceof BigInteger)) {
+            long a = ((Number) left).longValue();
+            long b = ((Number) right).longValue();
+            try {
+                switch (operator) {
+                    case PLUS: return narrow(Math.addExact(a, b));
+                    case MINUS: return narrow(Math.subtractExact(a, b));
+                    case STAR: return narrow(Math.multiplyExact(a, b));
+                    case DIV:
+                        if (a == Long.MIN_VALUE && b == -1) break;
+                        return narrow(a / b);
+                    default: return narrow(a % b);
+                }
+            } catch (ArithmeticException overflow) {
+                // The result needs a BigInteger
+            }
+        }
+        BigInteger a = toBigInteger(left);
+        BigInteger b = toBigInteger(right);
+        switch (operator) {
+            case PLUS: return narrow(a.add(b));
+            case MINUS: return narrow(a.subtract(b));
+            case STAR: return narrow(a.multiply(b));
+            case DIV: return narrow(a.divide(b));
+            default: return narrow(a.remainder(b));
+        }
+    }
+
+    Object negate(Object operand) {
+        if (operand instanceof Integer) {
+            int value = (Integer) operand;
+            return fromLong(-(long) value, -value);
+        }
+        return narrow(toBigInteger(operand).negate());
+    }
+
+    // The compare method compares two entier operands
+    static int compare(Object left, Object right) {
+        if (left instanceof BigInteger || right instanceof BigInteger) {
+            return toBigInteger(left).compareTo(toBigInteger(right));
+        }
+        return Long.compare(((Number) left).longValue(), ((Number) right).longValue());
+    }
+
+    static boolean isZero(Object value) {
+        return value instanceof BigInteger ? ((BigInteger) value).signum() == 0 : ((Number) value).longValue() == 0;
+    }
+
+    // Applies the mode to a result computed exactly as a long, and with int wrap around
+    private Object fromLong(long exact, int wrapped) {
+        if (exact == wrapped || mode == EntierMode.WRAP) {
+            return wrapped;
+        }
+        if (mode == EntierMode.TRAP) {
+            return null;
+        }
+        return exact;
+    }
+
+    private static Object narrow(long value) {
+        if (value == (int) value) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    private static Object narrow(BigInteger value) {
+        if (value.compareTo(INT_MIN) >= 0 && value.compareTo(INT_MAX) <= 0) {
+            return value.intValue();
+        }
+        if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) {
+            return value.longValue();
+        }
+        return value;
+    }
+
+    private static BigInteger toBigInteger(Object value) {
+        if (value instanceof BigInteger) {
+            return (BigInteger) value;
+        }
+        return BigInteger.valueOf(((Number) value).longValue());
+    }
+}
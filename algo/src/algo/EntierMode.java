@@ -0,0 +1,24 @@
+package algo;
+/**
+ * Enum representing how entier arithmetic behaves when a result does not fit
+ * in an int. WRAP keeps the two's complement result like Java int arithmetic,
+ * TRAP stops the program with an error, and PROMOTE carries on with a long,
+ * then a BigInteger.
+ */
+public enum EntierMode {
+	WRAP, TRAP, PROMOTE;
+
+	// The fromProperty method reads the algo.entier system property, PROMOTE by default
+	static EntierMode fromProperty() {
+		String mode = System.getProperty("algo.entier");
+		if (mode == null) {
+			return PROMOTE;
+		}
+		for (EntierMode candidate : values()) {
+			if (candidate.name().equalsIgnoreCase(mode)) {
+				return candidate;
+			}
+		}
+		throw new IllegalArgumentException("Invalid algo.entier mode '" + mode + "', expected wrap, trap or promote.");
+	}
+}
@@ -0,0 +1,30 @@
+package algo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The ExecuteEvent is a JDK Flight Recorder event covering the execution of
+ * a program by the Interpreter.
+ */
+@Name("algo.Execute")
+@Label("Algo Execute")
+@Category({"Algo"})
+@Description("Execution of an algo program")
+class ExecuteEvent extends Event {
+    @Label("Program")
+    @Description("Name given after 'Algorithme'")
+    String program;
+
+    @Label("Token Count")
+    int tokenCount;
+
+    @Label("Statements Executed")
+    long statementsExecuted;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,146 @@
+package algo;
+
+import java.util.List;
+
+import static algo.TokenType.*;
+
+/**
+ * The ExpressionCompiler class builds the ExpressionNode tree of the expression
+ * starting at a given token. It follows the grammar and operator precedence of
+ * the Interpreter exactly, without evaluating anything. If the tokens do not
+ * form a valid expression it gives up and returns null: the Interpreter then
+ * evaluates the expression token by token, which reports the error.
+ */
+class ExpressionCompiler {
+    // The binary operators, from the lowest to the highest precedence
+    private static final TokenType[][] OPERATORS = Parser.OPERATORS;
+
+    private final List<Token> tokens;
+    private final EntierArithmetic entierArithmetic;
+    private int current;
+
+    ExpressionCompiler(List<Token> tokens, EntierArithmetic entierArithmetic) {
+        this.tokens = tokens;
+        this.entierArithmetic = entierArithmetic;
+    }
+
+    // The compile method returns the tree of the expression at start, or null
+    ExpressionNode compile(int start) {
+        current = start;
+        try {
+            return binary(0);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    // The end method returns the index of the token after the last compiled expression
+    int end() {
+        return current;
+    }
+
+    private boolean match(TokenType... types) {
+        TokenType type = tokens.get(current).type;
+        for (TokenType candidate : types) {
+            if (type == candidate) {
+                if (type != EOF) current++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Matches a built-in like longueur, an identifier followed by '(', as the Interpreter does
+    private boolean matchBuiltIn(String name) {
+        Token token = tokens.get(current);
+        if (token.type == IDENTIFIER && token.lexeme.equals(name) && tokens.get(current + 1).type == LEFT_PAREN) {
+            current++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(TokenType type, String errorMessage) {
+        if (!match(type)) {
+            throw new IllegalStateException(errorMessage);
+        }
+    }
+
+    private ExpressionNode binary(int level) {
+        if (level == OPERATORS.length) {
+            return unary();
+        }
+        ExpressionNode left = binary(level + 1);
+        while (match(OPERATORS[level])) {
+            Token operator = tokens.get(current - 1);
+            ExpressionNode right = binary(level + 1);
+            left = new ExpressionNode.Binary(operator, left, right, current);
+        }
+        return left;
+    }
+
+    private ExpressionNode unary() {
+        if (match(MINUS)) {
+            ExpressionNode operand = primary();
+            return new ExpressionNode.Negate(operand, current);
+        }
+        return primary();
+    }
+
+    private ExpressionNode primary() {
+        ExpressionNode value = operand();
+        while (match(LEFT_BRACKET)) {
+            ExpressionNode index = binary(0);
+            expect(RIGHT_BRACKET, "Expected ']' after index.");
+            value = new ExpressionNode.Index(value, index, current);
+        }
+        return value;
+    }
+
+    private ExpressionNode operand() {
+        if (matchBuiltIn("longueur")) {
+            expect(LEFT_PAREN, "Expected '(' after longueur");
+            ExpressionNode value = binary(0);
+            expect(RIGHT_PAREN, "Expected ')' after argument.");
+            return new ExpressionNode.Length(value, current);
+        }
+        if (matchBuiltIn("sous_chaine")) {
+            expect(LEFT_PAREN, "Expected '(' after sous_chaine");
+            ExpressionNode value = binary(0);
+            expect(COMMA, "Expected ',' between arguments.");
+            ExpressionNode from = binary(0);
+            expect(COMMA, "Expected ',' between arguments.");
+            ExpressionNode to = binary(0);
+            expect(RIGHT_PAREN, "Expected ')' after arguments.");
+            return new ExpressionNode.Substring(value, from, to, current);
+        }
+        if (match(ENTIER_NUMBER)) {
+            Object value = entierArithmetic.literal(tokens.get(current - 1).lexeme);
+            if (value == null) {
+                throw new IllegalStateException("Integer overflow.");
+            }
+            return new ExpressionNode.Literal(value, current);
+        }
+        if (match(REEL_NUMBER)) {
+            return new ExpressionNode.Literal(Double.valueOf(tokens.get(current - 1).lexeme), current);
+        }
+        if (match(STRING)) {
+            return new ExpressionNode.Literal(tokens.get(current - 1).lexeme, current);
+        }
+        if (match(TRUE)) {
+            return new ExpressionNode.Literal(true, current);
+        }
+        if (match(FALSE)) {
+            return new ExpressionNode.Literal(false, current);
+        }
+        if (match(LEFT_PAREN)) {
+            ExpressionNode expression = binary(0);
+            expect(RIGHT_PAREN, "Expected ')' after expression.");
+            return expression;
+        }
+        if (match(IDENTIFIER)) {
+            return new ExpressionNode.Read(tokens.get(current - 1).lexeme, current);
+        }
+        throw new IllegalStateException("Expected an expression.");
+    }
+}
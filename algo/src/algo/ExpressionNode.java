@@ -0,0 +1,278 @@
+package algo;
+
+import static algo.TokenType.*;
+
+/**
+ * The ExpressionNode class is a node of an expression tree built by the
+ * ExpressionCompiler for the specializing execution mode of the Interpreter.
+ * Operator nodes start generic and specialize themselves on the operand types
+ * they observe; the generic path always goes through the Interpreter operator
+ * methods, so both modes compute the same values and report the same errors.
+ * Each node remembers the index of the token that follows it, which is where
+ * the token walking evaluation would stand when reporting an error.
+ */
+abstract class ExpressionNode {
+    final int errorIndex;
+
+    ExpressionNode(int errorIndex) {
+        this.errorIndex = errorIndex;
+    }
+
+    abstract Object execute(Interpreter interpreter);
+
+    // A number, string or boolean literal
+    static final class Literal extends ExpressionNode {
+        private final Object value;
+
+        Literal(Object value, int errorIndex) {
+            super(errorIndex);
+            this.value = value;
+        }
+
+        @Override
+        Object execute(Interpreter interpreter) {
+            return value;
+        }
+    }
+
+    // A variable read
+    static final class Read extends ExpressionNode {
+        private final String name;
+
+        Read(String name, int errorIndex) {
+            super(errorIndex);
+            this.name = name;
+        }
+
+        @Override
+        Object execute(Interpreter interpreter) {
+            return interpreter.valueOf(name, errorIndex);
+        }
+    }
+
+    // The unary minus
+    static final class Negate extends ExpressionNode {
+        private final ExpressionNode operand;
+
+        Negate(ExpressionNode operand, int errorIndex) {
+            super(errorIndex);
+            this.operand = operand;
+        }
+
+        @Override
+        Object execute(Interpreter interpreter) {
+            Object value = operand.execute(interpreter);
+            if (value instanceof Integer && (Integer) value != Integer.MIN_VALUE) {
+                return -(Integer) value;
+            }
+            interpreter.moveTo(errorIndex);
+            return interpreter.negate(value);
+        }
+    }
+
+    // The longueur built-in
+    static final class Length extends ExpressionNode {
+        private final ExpressionNode value;
+
+        Length(ExpressionNode value, int errorIndex) {
+            super(errorIndex);
+            this.value = value;
+        }
+
+        @Override
+        Object execute(Interpreter interpreter) {
+            Object operand = value.execute(interpreter);
+            interpreter.moveTo(errorIndex);
+            return interpreter.length(operand);
+        }
+    }
+
+    // The sous_chaine built-in
+    static final class Substring extends ExpressionNode {
+        private final ExpressionNode value;
+        private final ExpressionNode from;
+        private final ExpressionNode to;
+
+        Substring(ExpressionNode value, ExpressionNode from, ExpressionNode to, int errorIndex) {
+            super(errorIndex);
+            this.value = value;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        Object execute(Interpreter interpreter) {
+            Object chaine = value.execute(interpreter);
+            Object start = from.execute(interpreter);
+            Object end = to.execute(interpreter);
+            interpreter.moveTo(errorIndex);
+            return interpreter.substring(chaine, start, end);
+        }
+    }
+
+    // Character indexing, value[index]
+    static final class Index extends ExpressionNode {
+        private final ExpressionNode value;
+        private final ExpressionNode index;
+
+        Index(ExpressionNode value, ExpressionNode index, int errorIndex) {
+            super(errorIndex);
+            this.value = value;
+            this.index = index;
+        }
+
+        @Override
+        Object execute(Interpreter interpreter) {
+            Object chaine = value.execute(interpreter);
+            Object position = index.execute(interpreter);
+            interpreter.moveTo(errorIndex);
+            return interpreter.index(chaine, position);
+        }
+    }
+
+    // The specializations a Binary node can be in
+    enum Specialization {
+        UNINITIALIZED, INT_INT, DOUBLE_DOUBLE, MIXED, GENERIC
+    }
+
+    /**
+     * A binary operator. Arithmetic and comparison operators specialize on
+     * the first operands they see: int-int, double-double or mixed int and
+     * double. When a specialized node sees other operand types it deoptimizes
+     * to GENERIC for good and reports itself as a polymorphic site.
+     * Logical operators are always generic.
+     */
+    static final class Binary extends ExpressionNode {
+        private final Token operator;
+        private final ExpressionNode left;
+        private final ExpressionNode right;
+        private Specialization specialization;
+
+        Binary(Token operator, ExpressionNode left, ExpressionNode right, int errorIndex) {
+            super(errorIndex);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+            this.specialization = operator.type == OR || operator.type == AND
+                    ? Specialization.GENERIC : Specialization.UNINITIALIZED;
+        }
+
+        Specialization getSpecialization() {
+            return specialization;
+        }
+
+        @Override
+        Object execute(Interpreter interpreter) {
+            Object l = left.execute(interpreter);
+            Object r = right.execute(interpreter);
+            switch (specialization) {
+                case INT_INT:
+                    if (l instanceof Integer && r instanceof Integer) {
+                        Object result = intInt((Integer) l, (Integer) r);
+                        if (result != null) return result;
+                        return generic(interpreter, l, r);
+                    }
+                    break;
+                case DOUBLE_DOUBLE:
+                    if (l instanceof Double && r instanceof Double) {
+                        Object result = doubleDouble((Double) l, (Double) r);
+                        if (result != null) return result;
+                        return generic(interpreter, l, r);
+                    }
+                    break;
+                case MIXED:
+                    if ((l instanceof Integer && r instanceof Double)
+                            || (l instanceof Double && r instanceof Integer)) {
+                        Object result = doubleDouble(((Number) l).doubleValue(), ((Number) r).doubleValue());
+                        if (result != null) return result;
+                        return generic(interpreter, l, r);
+                    }
+                    break;
+                case UNINITIALIZED:
+                    specialization = specialize(l, r);
+                    return generic(interpreter, l, r);
+                default:
+                    return generic(interpreter, l, r);
+            }
+            // The operands do not match the specialization
+            interpreter.reportPolymorphicSite(operator, specialization, l, r);
+            specialization = Specialization.GENERIC;
+            return generic(interpreter, l, r);
+        }
+
+        private static Specialization specialize(Object l, Object r) {
+            if (l instanceof Integer && r instanceof Integer) {
+                return Specialization.INT_INT;
+            } else if (l instanceof Double && r instanceof Double) {
+                return Specialization.DOUBLE_DOUBLE;
+            } else if ((l instanceof Integer && r instanceof Double)
+                    || (l instanceof Double && r instanceof Integer)) {
+                return Specialization.MIXED;
+            }
+            return Specialization.GENERIC;
+        }
+
+        // The int-int fast path, returns null when the generic path must handle
+        // the operation (overflow, division by zero, invalid operator)
+        private Object intInt(int l, int r) {
+            switch (operator.type) {
+                case PLUS:
+                    int sum = l + r;
+                    return ((l ^ sum) & (r ^ sum)) < 0 ? null : sum;
+                case MINUS:
+                    int difference = l - r;
+                    return ((l ^ r) & (l ^ difference)) < 0 ? null : difference;
+                case STAR:
+                    long product = (long) l * r;
+                    return (int) product != product ? null : (int) product;
+                case DIV: return r == 0 || (l == Integer.MIN_VALUE && r == -1) ? null : l / r;
+                case MOD: return r == 0 ? null : l % r;
+                case LESS: return l < r;
+                case GREATER: return l > r;
+                case LESS_EQUAL: return l <= r;
+                case GREATER_EQUAL: return l >= r;
+                case EQUAL: return l == r;
+                case BANG_EQUAL: return l != r;
+                default: return null;
+            }
+        }
+
+        // The double-double fast path, also used for mixed operands.
+        // '!=' is left to the generic path, which compares doubles with equals.
+        private Object doubleDouble(double l, double r) {
+            switch (operator.type) {
+                case PLUS: return l + r;
+                case MINUS: return l - r;
+                case STAR: return l * r;
+                case SLASH: return r == 0 ? null : l / r;
+                case LESS: return l < r;
+                case GREATER: return l > r;
+                case LESS_EQUAL: return l <= r;
+                case GREATER_EQUAL: return l >= r;
+                case EQUAL: return l == r;
+                default: return null;
+            }
+        }
+
+        private Object generic(Interpreter interpreter, Object l, Object r) {
+            interpreter.moveTo(errorIndex);
+            switch (operator.type) {
+                case OR: return interpreter.logicalOr(l, r);
+                case AND: return interpreter.logicalAnd(l, r);
+                // An '=' is always consumed at the comparison level
+                case BANG_EQUAL: return interpreter.equality(operator.type, l, r);
+                case EQUAL:
+                case LESS:
+                case GREATER:
+                case LESS_EQUAL:
+                case GREATER_EQUAL:
+                    return interpreter.comparison(operator.type, l, r);
+                case PLUS:
+                case MINUS:
+                    return interpreter.addition(operator.type, l, r);
+                default:
+                    return interpreter.multiplication(operator, l, r);
+            }
+        }
+    }
+}
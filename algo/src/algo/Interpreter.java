@@ -1,8 +1,12 @@
 package algo;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import static algo.TokenType.*;
 
@@ -15,22 +19,96 @@ public class Interpreter extends ErrorThrower{
     private Token currentToken;
     private final List<Token> tokens;
     // A map to store variables and their values
-    private final Map<String, Variable> environment = new HashMap<>();
+    private final Map<String, Variable> environment;
     private int currentIndex = 0;
+    // Number of statements executed, reported to the monitoring events
+    private long statementsExecuted = 0;
+    // In the specializing mode expressions are compiled once into self
+    // specializing ExpressionNode trees, indexed by their first token
+    private boolean specializing = Boolean.getBoolean("algo.specialize");
+    private ExpressionNode[] compiledExpressions;
+    private int[] compiledEnds;
+    private static final ExpressionNode NOT_COMPILABLE = new ExpressionNode.Literal(null, -1);
+    // How entier results that do not fit in an int are handled
+    private EntierArithmetic entierArithmetic = new EntierArithmetic(EntierMode.fromProperty());
+    // The pool running the iterations of 'pour parallele', the common pool by default
+    private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+    // A parallel loop task stops splitting when this many tasks are already waiting to be stolen
+    private static final int SURPLUS_THRESHOLD = 2;
+    private boolean logging = true;
+    // Where ecrire prints
+    private PrintStream out = System.out;
+    // Checkpointing: when set, the constructs being executed are kept in frames
+    // and a snapshot may be saved at every loop back-edge
+    private Checkpoint checkpoint;
+    private final List<Frame> frames = new ArrayList<>();
+    // The frames of a snapshot that are still to be re-entered when resuming
+    private List<Frame> resumeFrames;
 
 	@Override
 	public void error(String msg) {
-		throw new RuntimeException("[INTERPRETER] Error at line "+currentToken.line + " Token: " + currentToken.lexeme + " : " + msg);
+		throw new AlgoError(Diagnostic.at("INTERPRETER", currentToken, msg));
 	}
 
 	@Override
 	public void log(String msg) {
-		System.err.println("[INTERPRETER] "+msg);
+		if (logging) {
+			System.err.println("[INTERPRETER] "+msg);
+		}
 	}
 	
     public Interpreter(List<Token> tokens) {
         this.tokens = tokens;
         this.currentToken = tokens.get(0);
+        this.environment = new HashMap<>();
+    }
+
+    // Creates the interpreter running iterations of a 'pour parallele' for its parent.
+    // It reads a copy of the parent variables and does not log, the workers of
+    // the loop would otherwise contend on stderr.
+    private Interpreter(Interpreter parent) {
+        this.tokens = parent.tokens;
+        this.currentToken = parent.currentToken;
+        this.environment = new HashMap<>(parent.environment);
+        this.specializing = parent.specializing;
+        this.entierArithmetic = parent.entierArithmetic;
+        this.forkJoinPool = parent.forkJoinPool;
+        this.logging = false;
+        this.out = parent.out;
+    }
+
+    // The setSpecializing method selects the specializing execution mode,
+    // which is also enabled by the algo.specialize system property
+    public void setSpecializing(boolean specializing) {
+        this.specializing = specializing;
+    }
+
+    // The setEntierMode method selects how entier overflows are handled,
+    // which can also be set with the algo.entier system property
+    public void setEntierMode(EntierMode mode) {
+        this.entierArithmetic = new EntierArithmetic(mode);
+    }
+
+    // The setForkJoinPool method selects the pool running 'pour parallele' loops
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    // The setOutput method redirects what ecrire prints, stdout by default
+    public void setOutput(PrintStream out) {
+        this.out = out;
+    }
+
+    // The setCheckpoint method saves snapshots at loop back-edges as decided by
+    // checkpoint, resumes from its snapshot if it has one, and prints to its output
+    void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        this.out = checkpoint.getOutput();
+    }
+
+    // The setLogging method turns the trace of every matched token on or off
+    public void setLogging(boolean logging) {
+        this.logging = logging;
     }
 
     // The advance method moves to the next token in the list
@@ -51,7 +129,7 @@ public class Interpreter extends ErrorThrower{
     private boolean match(TokenType... types) {
         for (TokenType type : types) {
             if (currentToken.type == type) {
-            	log("Matching : " + currentToken);
+            	if (logging) log("Matching : " + currentToken);
                 advance();
                 return true;
             }
@@ -62,7 +140,7 @@ public class Interpreter extends ErrorThrower{
     private boolean check(TokenType... types) {
         for (TokenType type : types) {
             if (currentToken.type == type) {
-            	log("Chekcing : " + currentToken);
+            	if (logging) log("Chekcing : " + currentToken);
                 return true;
             }
         }
@@ -72,7 +150,7 @@ public class Interpreter extends ErrorThrower{
     private Token consume(TokenType type, String errorMessage) {
         if (currentToken.type == type) {
             Token token = currentToken;
-            log("Consuming: " + token);
+            if (logging) log("Consuming: " + token);
             advance();
             return token;
         }
@@ -87,6 +165,9 @@ public class Interpreter extends ErrorThrower{
         consume(TDO, "Expected 'TDO' after program name.");
         parseDeclarations();
         consume(BEGIN, "Expected 'Debut' to start program body.");
+        if (checkpoint != null && checkpoint.getResumed() != null) {
+            resume(checkpoint.getResumed());
+        }
         while (!check(END, EOF)) {
         	parseStatement();        		
         }
@@ -105,14 +186,21 @@ public class Interpreter extends ErrorThrower{
             consume(SEMICOLON, "Expected ';' after "+previous().lexeme+".");
         }
     }
+    // The getStatementsExecuted method returns the number of statements executed so far
+    public long getStatementsExecuted() {
+        return statementsExecuted;
+    }
     // The parseStatement method parses a single statement in the program
     private void parseStatement() {
+        statementsExecuted++;
         if (match(PRINT)) {
         	parsePrintStatement();
         } else if (match(IF)) {
             parseIfStatement();
         } else if (match(WHILE)) {
             parseWhileStatement();
+        } else if (match(FOR)) {
+            parseForStatement();
         } else if (match(IDENTIFIER)) {
             parseVariableAssign();
         } else {
@@ -129,35 +217,78 @@ public class Interpreter extends ErrorThrower{
                 consume(COMMA, "Expected ',' between expressions.");
             }
             Object value = parseExpression();
-            System.out.print(value+" ");
+            out.print(value+" ");
             first = false;
         }
 
-        System.out.println();
+        out.println();
         consume(SEMICOLON, "Expected ';' after print statement.");
     }
     // The parseIfStatement method parses the if statement in the program
     private void parseIfStatement() {
-        Object condition = parseExpression();
-        consume(THEN, "Expected 'alors' after condition.");
+        int start = currentIndex - 1;
+        Frame resumed = resumedFrame(IF, start);
+        boolean elseBranch;
+        if (resumed != null) {
+            // A snapshot is taken in a loop, which is in the branch that was taken
+            if (resumeFrames == null) {
+                error("The snapshot does not match the program.");
+            }
+            elseBranch = resumed.elseBranch;
+            moveTo(resumeFrames.get(0).start);
+        } else {
+            Object condition = parseExpression();
+            consume(THEN, "Expected 'alors' after condition.");
+            elseBranch = !(condition instanceof Boolean && (Boolean) condition);
+            if (elseBranch) {
+                int nestingLevel = 1;
+                while (nestingLevel > 0) {
+                    if (check(IF)) {
+                        nestingLevel++;
+                        advance();
+                    } else if (check(END_IF)) {
+                        nestingLevel--;
+                        if(nestingLevel==0) {
+                            break;
+                        }
+                        advance();
+                    } else if(check(ELSE)){
+                        // Only the 'sinon' of this 'si' ends the skipped branch,
+                        // not the 'sinon' of a nested one
+                        if(nestingLevel==1) {
+                            break;
+                        }
+                        advance();
+                    } else {
+                        advance();
+                    }
+                }
+                if (!match(ELSE)) {
+                    consume(END_IF, "Expected 'finsi' to close the if block.");
+                    return;
+                }
+            }
+            if (checkpoint != null) {
+                Frame frame = new Frame(IF, start);
+                frame.elseBranch = elseBranch;
+                frames.add(frame);
+            }
+        }
 
-        if (condition instanceof Boolean && (Boolean) condition) {
-        	while (!check(ELSE, END_IF)) {
+        if (!elseBranch) {
+            while (!check(ELSE, END_IF)) {
                 parseStatement();
             }
             if (match(ELSE)) {
-            	int nestingLevel = 1;
+                int nestingLevel = 1;
                 while (nestingLevel > 0) {
                     if (check(IF)) {
                         nestingLevel++;
-                        if(nestingLevel==0) {
-                        	break;
-                        }
                         advance();
                     } else if (check(END_IF)) {
                         nestingLevel--;
                         if(nestingLevel==0) {
-                        	break;
+                            break;
                         }
                         advance();
                     } else {
@@ -166,37 +297,11 @@ public class Interpreter extends ErrorThrower{
                 }
             }
         } else {
-        	int nestingLevel = 1; 
-            while (nestingLevel > 0) {
-                if (check(IF)) {
-                    nestingLevel++;
-                    if(nestingLevel==0) {
-                    	break;
-                    }
-                    advance();
-                } else if (check(END_IF)) {
-                    nestingLevel--;
-                    if(nestingLevel==0) {
-                    	advance();
-                    	break;
-                    }
-                    advance();
-                } else if(check(ELSE)){
-                	nestingLevel--;
-                	if(nestingLevel==0) {
-                    	break;
-                    }
-                	advance();
-                } else {
-                    advance();
-                }
-            }
-            if (match(ELSE)) {
-            	while (!check(END_IF)) {
-                    parseStatement();
-                }
+            while (!check(END_IF)) {
+                parseStatement();
             }
         }
+        leaveFrame();
         consume(END_IF, "Expected 'finsi' to close the if block.");
     }
     // The parseWhileStatement method parses the while statement in the program
@@ -204,17 +309,29 @@ public class Interpreter extends ErrorThrower{
 
         int loopStartIndex = currentIndex;
 
-        Object condition = parseExpression();
-        consume(DO, "Expected 'faire' after condition.");
+        Object condition;
+        Frame resumed = resumedFrame(WHILE, loopStartIndex - 1);
+        if (resumed != null && resumeFrames != null) {
+            // The snapshot was taken inside the body, the condition held
+            condition = true;
+            moveTo(resumeFrames.get(0).start);
+        } else {
+            if (resumed == null && checkpoint != null) {
+                frames.add(new Frame(WHILE, loopStartIndex - 1));
+            }
+            condition = parseExpression();
+            consume(DO, "Expected 'faire' after condition.");
 
-        if (!(condition instanceof Boolean)) {
-            error("Condition in 'tantque' must evaluate to a boolean.");
+            if (!(condition instanceof Boolean)) {
+                error("Condition in 'tantque' must evaluate to a boolean.");
+            }
         }
 
         while ((Boolean) condition) {
         	while (!match(END_WHILE)) {
                 parseStatement();
             }
+            backEdge();
 
             currentIndex = loopStartIndex;
             currentToken = tokens.get(currentIndex);
@@ -237,8 +354,217 @@ public class Interpreter extends ErrorThrower{
                 advance();
             }
         }
+        leaveFrame();
+    }
+    // The parseForStatement method parses the for statement in the program:
+    //   pour i de <debut> a <fin> faire ... finpour
+    //   pour parallele i de <debut> a <fin> [somme s] [max m] [min m] faire ... finpour
+    // The bounds are evaluated once and included. The iterations of a parallel
+    // loop run on the fork-join pool, the Parser makes sure their body only
+    // assigns the reduction variables.
+    private void parseForStatement() {
+        int start = currentIndex - 1;
+        Frame resumed = resumedFrame(FOR, start);
+        if (resumed != null) {
+            resumeForStatement(resumed);
+            return;
+        }
+        boolean parallel = match(PARALLEL);
+        String name = consume(IDENTIFIER, "Expected loop variable after 'pour'.").lexeme;
+        Variable variable = environment.get(name);
+        if (variable == null || variable.type != ENTIER) {
+            error("Loop variable " + name + " must be an entier variable.");
+        }
+        consumeWord("de", "Expected 'de' after loop variable.");
+        Object from = parseExpression();
+        consumeWord("a", "Expected 'a' after first bound.");
+        Object to = parseExpression();
+        if (!isEntier(from) || !isEntier(to)) {
+            error("Bounds of 'pour' must be entier values.");
+        }
+        if (!(from instanceof Integer) || !(to instanceof Integer)) {
+            error("Bounds of 'pour' must fit in an int.");
+        }
+        List<Reduction> reductions = new ArrayList<>();
+        while (parallel && check(IDENTIFIER) && Reduction.isOperator(currentToken.lexeme)) {
+            String operator = currentToken.lexeme;
+            advance();
+            reductions.add(new Reduction(operator, consume(IDENTIFIER, "Expected variable after " + operator + ".").lexeme));
+        }
+        consume(DO, "Expected 'faire' after bounds.");
 
+        int bodyStartIndex = currentIndex;
+        int first = (Integer) from;
+        int last = (Integer) to;
+        if (parallel) {
+            runParallelLoop(name, first, last, bodyStartIndex, reductions);
+        } else {
+            Frame frame = null;
+            if (checkpoint != null) {
+                frame = new Frame(FOR, start);
+                frame.bodyIndex = bodyStartIndex;
+                frame.last = last;
+                frames.add(frame);
+            }
+            runForLoop(name, first, last, bodyStartIndex, frame);
+            leaveFrame();
+        }
+        moveTo(bodyStartIndex);
+        skipBlock(FOR, END_FOR);
     }
+
+    // Runs the iterations first to last of a sequential 'pour'
+    private void runForLoop(String name, long first, int last, int bodyStartIndex, Frame frame) {
+        for (long i = first; i <= last; i++) {
+            environment.put(name, new Variable((int) i, ENTIER));
+            if (frame != null) {
+                frame.counter = (int) i;
+            }
+            runLoopBody(bodyStartIndex);
+            backEdge();
+        }
+    }
+
+    // Continues a sequential 'pour' from a snapshot: the bounds are not evaluated
+    // again, and the iteration the snapshot was taken in is finished first
+    private void resumeForStatement(Frame frame) {
+        String name = consume(IDENTIFIER, "Expected loop variable after 'pour'.").lexeme;
+        if (resumeFrames != null) {
+            moveTo(resumeFrames.get(0).start);
+            while (!match(END_FOR)) {
+                parseStatement();
+            }
+            backEdge();
+        }
+        runForLoop(name, (long) frame.counter + 1, frame.last, frame.bodyIndex, frame);
+        leaveFrame();
+        moveTo(frame.bodyIndex);
+        skipBlock(FOR, END_FOR);
+    }
+
+    // Executes the body of a 'pour' once, from its first token to 'finpour'
+    private void runLoopBody(int bodyStartIndex) {
+        moveTo(bodyStartIndex);
+        while (!match(END_FOR)) {
+            parseStatement();
+        }
+    }
+
+    // Moves past the end of the block the current token is in
+    private void skipBlock(TokenType opening, TokenType closing) {
+        int nested = 0;
+        while (!check(EOF)) {
+            if (match(opening)) {
+                nested++;
+            } else if (match(closing)) {
+                if (nested == 0) {
+                    return;
+                }
+                nested--;
+            } else {
+                advance();
+            }
+        }
+        error("Expected '" + closing + "' to close the block.");
+    }
+
+    // Consumes an identifier used as a keyword in a statement, like 'de' in 'pour'
+    private void consumeWord(String word, String errorMessage) {
+        if (!check(IDENTIFIER) || !currentToken.lexeme.equals(word)) {
+            error(errorMessage);
+        }
+        advance();
+    }
+
+    // Matches a built-in like longueur, which is an identifier followed by '('.
+    // The name is not reserved: a variable is never followed by '(', so programs
+    // can still have a variable named longueur.
+    private boolean matchBuiltIn(String name) {
+        if (check(IDENTIFIER) && currentToken.lexeme.equals(name) && tokens.get(currentIndex + 1).type == LEFT_PAREN) {
+            if (logging) log("Matching : " + currentToken);
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    // Saves a snapshot at the end of an iteration of a loop if the checkpoint says so
+    private void backEdge() {
+        if (checkpoint != null && checkpoint.isDue()) {
+            checkpoint.save(statementsExecuted, frames, environment);
+        }
+    }
+
+    // Leaves the construct on top of the frames
+    private void leaveFrame() {
+        if (checkpoint != null) {
+            frames.remove(frames.size() - 1);
+        }
+    }
+
+    // Restores the variables of a snapshot and moves to the outermost construct
+    // it was taken in. Each construct then re-enters itself through resumedFrame.
+    private void resume(Snapshot snapshot) {
+        for (Map.Entry<String, Variable> entry : snapshot.variables.entrySet()) {
+            Variable declared = environment.get(entry.getKey());
+            if (declared == null || declared.type != entry.getValue().type) {
+                error("The snapshot does not match the declaration of " + entry.getKey() + ".");
+            }
+            environment.put(entry.getKey(), entry.getValue());
+        }
+        statementsExecuted = snapshot.statementsExecuted;
+        if (!snapshot.frames.isEmpty()) {
+            resumeFrames = new ArrayList<>(snapshot.frames);
+            moveTo(resumeFrames.get(0).start);
+        }
+    }
+
+    // The resumedFrame method returns the frame of the construct starting at
+    // start when it is re-entered from a snapshot, or null when it runs normally.
+    // The frames left to resume after it are those of the constructs in its body.
+    private Frame resumedFrame(TokenType type, int start) {
+        if (resumeFrames == null) {
+            return null;
+        }
+        Frame frame = resumeFrames.remove(0);
+        if (frame.type != type || frame.start != start) {
+            error("The snapshot does not match the program.");
+        }
+        if (resumeFrames.isEmpty()) {
+            resumeFrames = null;
+        }
+        frames.add(frame);
+        return frame;
+    }
+
+    private void runParallelLoop(String name, int first, int last, int bodyStartIndex, List<Reduction> reductions) {
+        for (Reduction reduction : reductions) {
+            Variable variable = environment.get(reduction.variable);
+            if (variable == null || (variable.type != ENTIER && variable.type != REEL)) {
+                error("Reduction variable " + reduction.variable + " must be an entier or reel variable.");
+            }
+            if (variable.value == null) {
+                error("Reduction variable " + reduction.variable + " must be initialized before the loop.");
+            }
+        }
+        if (first > last) {
+            return;
+        }
+        ParallelLoop loop = new ParallelLoop(name, first, (long) last + 1, bodyStartIndex, reductions);
+        Object[] partials = forkJoinPool.invoke(loop);
+        for (int r = 0; r < reductions.size(); r++) {
+            Reduction reduction = reductions.get(r);
+            Variable variable = environment.get(reduction.variable);
+            Object value = reduction.combine(this, variable.value, partials[r]);
+            if (variable.type == REEL && isEntier(value)) {
+                value = ((Number) value).doubleValue();
+            }
+            environment.put(reduction.variable, new Variable(value, variable.type));
+        }
+        environment.put(name, new Variable(last, ENTIER));
+        statementsExecuted += loop.statementsExecuted;
+    }
+
     // The parseVariableAssign method parses the variable assignment in the program
     private void parseVariableAssign() {
         String name = previous().lexeme;
@@ -250,14 +576,18 @@ public class Interpreter extends ErrorThrower{
         }
 
         Variable variable = environment.get(name);
-        if (variable.type == ENTIER && !(value instanceof Integer)) {
+        if (variable.type == ENTIER && !isEntier(value)) {
             error("Type mismatch: Cannot assign non-integer to ENTIER variable.");
-        } else if (variable.type == REEL && !(value instanceof Double || value instanceof Integer)) {
+        } else if (variable.type == REEL && !(value instanceof Double || isEntier(value))) {
             error("Type mismatch: Cannot assign non-numeric to REEL variable.");
+        } else if (variable.type == CHAINE && !(value instanceof CharSequence)) {
+            error("Type mismatch: Cannot assign non-string to CHAINE variable.");
+        } else if (variable.type == CHAR && !(value instanceof CharSequence && ((CharSequence) value).length() == 1)) {
+            error("Type mismatch: Cannot assign a string whose length is not 1 to CHAR variable.");
         }
 
-        if (variable.type == REEL && value instanceof Integer) {
-            value = ((Integer) value).doubleValue();
+        if (variable.type == REEL && isEntier(value)) {
+            value = ((Number) value).doubleValue();
         }
 
         environment.put(name, new Variable(value, variable.type));
@@ -270,18 +600,84 @@ public class Interpreter extends ErrorThrower{
     }
     // These methods parse the different types of expressions in the program and handles operator precedence
     private Object parseExpression() {
+        if (specializing) {
+            int start = currentIndex;
+            ExpressionNode node = compiledExpression(start);
+            if (node != NOT_COMPILABLE) {
+                Object value = node.execute(this);
+                moveTo(compiledEnds[start]);
+                return value;
+            }
+        }
         return parseLogicalOr();
     }
 
+    // The compiledExpression method returns the tree of the expression at index,
+    // compiling it on first use
+    private ExpressionNode compiledExpression(int index) {
+        if (compiledExpressions == null) {
+            compiledExpressions = new ExpressionNode[tokens.size()];
+            compiledEnds = new int[tokens.size()];
+        }
+        ExpressionNode node = compiledExpressions[index];
+        if (node == null) {
+            ExpressionCompiler compiler = new ExpressionCompiler(tokens, entierArithmetic);
+            node = compiler.compile(index);
+            if (node == null) {
+                node = NOT_COMPILABLE;
+            }
+            compiledEnds[index] = compiler.end();
+            compiledExpressions[index] = node;
+        }
+        return node;
+    }
+
+    // The following methods are called back by the expression nodes
+    void moveTo(int index) {
+        currentIndex = index;
+        if (currentIndex < tokens.size()) {
+            currentToken = tokens.get(currentIndex);
+        }
+    }
+
+    Object valueOf(String name, int errorIndex) {
+        Variable variable = environment.get(name);
+        if (variable == null) {
+            moveTo(errorIndex);
+            error("Undefined variable: " + name);
+        }
+        return variable.value;
+    }
+
+    // The reportPolymorphicSite method is the profiler hook for operators whose
+    // operand types break their specialization
+    void reportPolymorphicSite(Token operator, ExpressionNode.Specialization specialization,
+            Object left, Object right) {
+        String leftType = left == null ? "null" : left.getClass().getSimpleName();
+        String rightType = right == null ? "null" : right.getClass().getSimpleName();
+        log("Polymorphic site at line " + operator.line + ", column " + operator.column
+                + " : '" + operator.lexeme + "' was " + specialization + ", got "
+                + leftType + " and " + rightType);
+        if (!AlgoEvents.isEnabled()) {
+            return;
+        }
+        PolymorphicSiteEvent event = new PolymorphicSiteEvent();
+        if (event.shouldCommit()) {
+            event.line = operator.line;
+            event.column = operator.column;
+            event.operator = operator.lexeme;
+            event.specialization = specialization.name();
+            event.leftType = leftType;
+            event.rightType = rightType;
+            event.commit();
+        }
+    }
+
     private Object parseLogicalOr() {
         Object left = parseLogicalAnd();
         while (match(OR)) {
             Object right = parseLogicalAnd();
-            if (left instanceof Boolean && right instanceof Boolean) {
-                left = (Boolean) left || (Boolean) right;
-            } else {
-                error("Invalid operands for OR.");
-            }
+            left = logicalOr(left, right);
         }
         return left;
     }
@@ -290,11 +686,7 @@ public class Interpreter extends ErrorThrower{
         Object left = parseEquality();
         while (match(AND)) {
             Object right = parseEquality();
-            if (left instanceof Boolean && right instanceof Boolean) {
-                left = (Boolean) left && (Boolean) right;
-            } else {
-                error("Invalid operands for AND.");
-            }
+            left = logicalAnd(left, right);
         }
         return left;
     }
@@ -304,15 +696,7 @@ public class Interpreter extends ErrorThrower{
         while (match(EQUAL, BANG_EQUAL)) {
             Token operator = previous();
             Object right = parseComparison();
-            if (left instanceof Double && right instanceof Double) {
-                left = operator.type == EQUAL ? left.equals(right) : !left.equals(right);
-            } else if (left instanceof Integer && right instanceof Integer) { 
-            	left = operator.type == EQUAL ? left.equals(right) : !left.equals(right);
-            } else if (left instanceof Boolean && right instanceof Boolean) {
-                left = operator.type == EQUAL ? left.equals(right) : !left.equals(right);
-            } else {
-                error("Invalid operands for equality.");
-            }
+            left = equality(operator.type, left, right);
         }
         return left;
     }
@@ -324,53 +708,7 @@ public class Interpreter extends ErrorThrower{
         while (match(LESS, GREATER, LESS_EQUAL, GREATER_EQUAL, EQUAL)) {
             Token operator = previous();
             Object right = parseAddition(); 
-            
-            if (left instanceof Integer && right instanceof Integer) {
-                switch (operator.type) {
-                    case LESS:
-                        left = (Integer) left < (Integer) right;
-                        break;
-                    case GREATER:
-                        left = (Integer) left > (Integer) right;
-                        break;
-                    case LESS_EQUAL:
-                        left = (Integer) left <= (Integer) right;
-                        break;
-                    case GREATER_EQUAL:
-                        left = (Integer) left >= (Integer) right;
-                        break;
-                    case EQUAL:
-                    	left = (Integer) left == (Integer) right;
-                    	break;
-				default:
-					break;
-                }
-            } else if (left instanceof Double || right instanceof Double) {
-                double leftVal = left instanceof Integer ? (Integer) left : (Double) left;
-                double rightVal = right instanceof Integer ? (Integer) right : (Double) right;
-
-                switch (operator.type) {
-                    case LESS:
-                        left = leftVal < rightVal;
-                        break;
-                    case GREATER:
-                        left = leftVal > rightVal;
-                        break;
-                    case LESS_EQUAL:
-                        left = leftVal <= rightVal;
-                        break;
-                    case GREATER_EQUAL:
-                        left = leftVal >= rightVal;
-                        break;
-                    case EQUAL:
-                    	left = leftVal == rightVal;
-                    	break;
-				default:
-					break;
-                }
-            } else {
-                error("Invalid operands for comparison.");
-            }
+            left = comparison(operator.type, left, right);
         }
 
         return left;
@@ -381,19 +719,7 @@ public class Interpreter extends ErrorThrower{
         while (match(PLUS, MINUS)) {
             Token operator = previous();
             Object right = parseMultiplication();
-
-            if (left instanceof Integer && right instanceof Integer) {
-                left = operator.type == PLUS
-                    ? (Integer) left + (Integer) right
-                    : (Integer) left - (Integer) right;
-            } else if (left instanceof Double || right instanceof Double) {
-                double leftVal = left instanceof Integer ? (Integer) left : (Double) left;
-                double rightVal = right instanceof Integer ? (Integer) right : (Double) right;
-
-                left = operator.type == PLUS ? leftVal + rightVal : leftVal - rightVal;
-            } else {
-                error("Invalid operands for addition or subtraction.");
-            }
+            left = addition(operator.type, left, right);
         }
         return left;
     }
@@ -405,54 +731,51 @@ public class Interpreter extends ErrorThrower{
         while (match(STAR, SLASH, DIV, MOD)) {
             Token operator = previous();
             Object right = parseUnary();
-
-            if (left instanceof Integer && right instanceof Integer) {
-                switch (operator.type) {
-                    case STAR: left = (Integer) left * (Integer) right; break;
-                    case DIV:
-                        if ((Integer) right == 0) error("Division by zero.");
-                        left = (Integer) left / (Integer) right; break;
-                    case MOD:
-                        if ((Integer) right == 0) error("Modulo by zero.");
-                        left = (Integer) left % (Integer) right; break;
-                    default: error("Invalid operator for integers: " + operator.lexeme);
-                }
-            } else if (left instanceof Double || right instanceof Double) {
-                double leftVal = left instanceof Integer ? (Integer) left : (Double) left;
-                double rightVal = right instanceof Integer ? (Integer) right : (Double) right;
-
-                switch (operator.type) {
-                    case STAR: left = leftVal * rightVal; break;
-                    case SLASH:
-                        if (rightVal == 0) error("Division by zero.");
-                        left = leftVal / rightVal; break;
-                    default: error("Invalid operator for doubles: " + operator.lexeme);
-                }
-            } else {
-                error("Operands must be both integers or both doubles.");
-            }
+            left = multiplication(operator, left, right);
         }
         return left;
     }
 
     private Object parseUnary() {
         if (match(MINUS)) {
-            Object operand = parsePrimary();
-            if (operand instanceof Integer) {
-                return -(Integer) operand;
-            } else if (operand instanceof Double) {
-                return -(Double) operand;
-            } else {
-                error("Invalid operand for unary minus.");
-            }
+            return negate(parsePrimary());
         }
         return parsePrimary();
     }
 
 
     private Object parsePrimary() {
-        if (match(ENTIER_NUMBER)) {
-            return Integer.valueOf(previous().lexeme);
+        Object value = parseOperand();
+        while (match(LEFT_BRACKET)) {
+            Object index = parseExpression();
+            consume(RIGHT_BRACKET, "Expected ']' after index.");
+            value = index(value, index);
+        }
+        return value;
+    }
+
+    private Object parseOperand() {
+        if (matchBuiltIn("longueur")) {
+            consume(LEFT_PAREN, "Expected '(' after longueur");
+            Object value = parseExpression();
+            consume(RIGHT_PAREN, "Expected ')' after argument.");
+            return length(value);
+        }
+        if (matchBuiltIn("sous_chaine")) {
+            consume(LEFT_PAREN, "Expected '(' after sous_chaine");
+            Object value = parseExpression();
+            consume(COMMA, "Expected ',' between arguments.");
+            Object from = parseExpression();
+            consume(COMMA, "Expected ',' between arguments.");
+            Object to = parseExpression();
+            consume(RIGHT_PAREN, "Expected ')' after arguments.");
+            return substring(value, from, to);
+        }
+        if (check(ENTIER_NUMBER)) {
+            // Checked before advancing, so that an overflow is reported at the literal
+            Object value = checked(entierArithmetic.literal(currentToken.lexeme));
+            advance();
+            return value;
         }
         if (match(REEL_NUMBER)) {
             return (Double.valueOf(previous().lexeme));
@@ -484,8 +807,360 @@ public class Interpreter extends ErrorThrower{
         return null;
     }
 
+    // The following methods implement the operators on evaluated operands.
+    // They are shared by the token walking evaluation above and by the
+    // specializing expression nodes, and report errors at the current token.
+    Object logicalOr(Object left, Object right) {
+        if (left instanceof Boolean && right instanceof Boolean) {
+            return (Boolean) left || (Boolean) right;
+        }
+        error("Invalid operands for OR.");
+        return null;
+    }
+
+    Object logicalAnd(Object left, Object right) {
+        if (left instanceof Boolean && right instanceof Boolean) {
+            return (Boolean) left && (Boolean) right;
+        }
+        error("Invalid operands for AND.");
+        return null;
+    }
+
+    Object equality(TokenType operator, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return operator == EQUAL ? left.equals(right) : !left.equals(right);
+        } else if (left instanceof Integer && right instanceof Integer) { 
+        	return operator == EQUAL ? left.equals(right) : !left.equals(right);
+        } else if (isEntier(left) && isEntier(right)) {
+            boolean equal = EntierArithmetic.compare(left, right) == 0;
+            return operator == EQUAL ? equal : !equal;
+        } else if (left instanceof Boolean && right instanceof Boolean) {
+            return operator == EQUAL ? left.equals(right) : !left.equals(right);
+        } else if (left instanceof CharSequence && right instanceof CharSequence) {
+            boolean equal = Chaine.compare((CharSequence) left, (CharSequence) right) == 0;
+            return operator == EQUAL ? equal : !equal;
+        }
+        error("Invalid operands for equality.");
+        return null;
+    }
+
+    Object comparison(TokenType operator, Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return compared(operator, Integer.compare((Integer) left, (Integer) right), left);
+        } else if (isEntier(left) && isEntier(right)) {
+            return compared(operator, EntierArithmetic.compare(left, right), left);
+        } else if (left instanceof CharSequence && right instanceof CharSequence) {
+            return compared(operator, Chaine.compare((CharSequence) left, (CharSequence) right), left);
+        } else if (isReel(left, right)) {
+            double leftVal = toDouble(left);
+            double rightVal = toDouble(right);
+
+            switch (operator) {
+                case LESS:
+                    return leftVal < rightVal;
+                case GREATER:
+                    return leftVal > rightVal;
+                case LESS_EQUAL:
+                    return leftVal <= rightVal;
+                case GREATER_EQUAL:
+                    return leftVal >= rightVal;
+                case EQUAL:
+                	return leftVal == rightVal;
+			default:
+				return left;
+            }
+        }
+        error("Invalid operands for comparison.");
+        return null;
+    }
+
+    // Turns the result of a compare into the value of a comparison operator
+    private static Object compared(TokenType operator, int comparison, Object left) {
+        switch (operator) {
+            case LESS:
+                return comparison < 0;
+            case GREATER:
+                return comparison > 0;
+            case LESS_EQUAL:
+                return comparison <= 0;
+            case GREATER_EQUAL:
+                return comparison >= 0;
+            case EQUAL:
+            	return comparison == 0;
+		default:
+			return left;
+        }
+    }
+
+    Object addition(TokenType operator, Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            int leftVal = (Integer) left;
+            int rightVal = (Integer) right;
+            int result = operator == PLUS ? leftVal + rightVal : leftVal - rightVal;
+            // The int result overflowed if its sign differs from the signs of both
+            // operands of the sum, the right operand being negated for a subtraction
+            boolean overflow = operator == PLUS
+                ? ((leftVal ^ result) & (rightVal ^ result)) < 0
+                : ((leftVal ^ rightVal) & (leftVal ^ result)) < 0;
+            return overflow ? entier(operator, left, right) : result;
+        } else if (isEntier(left) && isEntier(right)) {
+            return entier(operator, left, right);
+        } else if (operator == PLUS && (left instanceof CharSequence || right instanceof CharSequence)) {
+            // A string concatenated with another value gets that value as printed by ecrire
+            return Chaine.concat(toChaine(left), toChaine(right));
+        } else if (isReel(left, right)) {
+            double leftVal = toDouble(left);
+            double rightVal = toDouble(right);
+
+            return operator == PLUS ? leftVal + rightVal : leftVal - rightVal;
+        }
+        error("Invalid operands for addition or subtraction.");
+        return null;
+    }
+
+    Object multiplication(Token operator, Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            int leftVal = (Integer) left;
+            int rightVal = (Integer) right;
+            switch (operator.type) {
+                case STAR:
+                    long product = (long) leftVal * rightVal;
+                    return (int) product == product ? (int) product : entier(STAR, left, right);
+                case DIV:
+                    if (rightVal == 0) error("Division by zero.");
+                    // Integer.MIN_VALUE div -1 is the only int division that overflows
+                    if (leftVal == Integer.MIN_VALUE && rightVal == -1) return entier(DIV, left, right);
+                    return leftVal / rightVal;
+                case MOD:
+                    if (rightVal == 0) error("Modulo by zero.");
+                    return leftVal % rightVal;
+                default: error("Invalid operator for integers: " + operator.lexeme);
+            }
+        } else if (isEntier(left) && isEntier(right)) {
+            switch (operator.type) {
+                case STAR: return entier(STAR, left, right);
+                case DIV:
+                    if (EntierArithmetic.isZero(right)) error("Division by zero.");
+                    return entier(DIV, left, right);
+                case MOD:
+                    if (EntierArithmetic.isZero(right)) error("Modulo by zero.");
+                    return entier(MOD, left, right);
+                default: error("Invalid operator for integers: " + operator.lexeme);
+            }
+        } else if (isReel(left, right)) {
+            double leftVal = toDouble(left);
+            double rightVal = toDouble(right);
+
+            switch (operator.type) {
+                case STAR: return leftVal * rightVal;
+                case SLASH:
+                    if (rightVal == 0) error("Division by zero.");
+                    return leftVal / rightVal;
+                default: error("Invalid operator for doubles: " + operator.lexeme);
+            }
+        } else {
+            error("Operands must be both integers or both doubles.");
+        }
+        return null;
+    }
+
+    Object negate(Object operand) {
+        if (operand instanceof Integer && (Integer) operand != Integer.MIN_VALUE) {
+            return -(Integer) operand;
+        } else if (isEntier(operand)) {
+            return checked(entierArithmetic.negate(operand));
+        } else if (operand instanceof Double) {
+            return -(Double) operand;
+        }
+        error("Invalid operand for unary minus.");
+        return null;
+    }
+
+    Object length(Object value) {
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        }
+        error("Invalid operand for longueur.");
+        return null;
+    }
+
+    // The index method returns the character at a position of a string, counted
+    // from 0, as a string of length 1
+    Object index(Object value, Object index) {
+        if (!(value instanceof CharSequence) || !isEntier(index)) {
+            error("Only a chaine can be indexed, with an entier.");
+        }
+        CharSequence chaine = (CharSequence) value;
+        // An entier wider than an int is out of range of any chaine
+        if (!(index instanceof Integer) || (Integer) index < 0 || (Integer) index >= chaine.length()) {
+            error("Index " + index + " out of range for a chaine of length " + chaine.length() + ".");
+        }
+        int position = (Integer) index;
+        return chaine.subSequence(position, position + 1);
+    }
+
+    // The substring method returns the characters of a string from position from
+    // to position to, the latter excluded
+    Object substring(Object value, Object from, Object to) {
+        if (!(value instanceof CharSequence) || !isEntier(from) || !isEntier(to)) {
+            error("sous_chaine expects a chaine and two entier positions.");
+        }
+        CharSequence chaine = (CharSequence) value;
+        // An entier wider than an int is out of range of any chaine
+        if (!(from instanceof Integer) || !(to instanceof Integer)
+                || (Integer) from < 0 || (Integer) to > chaine.length() || (Integer) from > (Integer) to) {
+            error("Invalid range " + from + ".." + to + " for a chaine of length " + chaine.length() + ".");
+        }
+        return chaine.subSequence((Integer) from, (Integer) to);
+    }
+
+    private static CharSequence toChaine(Object value) {
+        return value instanceof CharSequence ? (CharSequence) value : String.valueOf(value);
+    }
+
+    // The entier method applies an operator to entier operands on the slow path
+    private Object entier(TokenType operator, Object left, Object right) {
+        return checked(entierArithmetic.arithmetic(operator, left, right));
+    }
+
+    private Object checked(Object result) {
+        if (result == null) {
+            error("Integer overflow.");
+        }
+        return result;
+    }
+
+    private static boolean isEntier(Object value) {
+        return EntierArithmetic.isEntier(value);
+    }
+
+    // Tells whether two operands are numbers and at least one of them is a reel.
+    // Anything else, like a chaine, is left to the error of the operator.
+    private static boolean isReel(Object left, Object right) {
+        return (left instanceof Double || right instanceof Double)
+            && (left instanceof Double || isEntier(left))
+            && (right instanceof Double || isEntier(right));
+    }
+
+    // Converts an entier or reel operand for a mixed operation
+    private static double toDouble(Object value) {
+        return value instanceof Double ? (Double) value : ((Number) value).doubleValue();
+    }
+
+    // A reduction of a 'pour parallele' loop: somme, max or min of a variable
+    private static final class Reduction {
+        final String operator;
+        final String variable;
+
+        Reduction(String operator, String variable) {
+            this.operator = operator;
+            this.variable = variable;
+        }
+
+        static boolean isOperator(String word) {
+            return word.equals("somme") || word.equals("max") || word.equals("min");
+        }
+
+        // The value a worker starts from: 0 for a somme, the value before the loop otherwise
+        Object identity(Variable variable) {
+            if (operator.equals("somme")) {
+                return variable.type == REEL ? (Object) 0.0 : (Object) 0;
+            }
+            return variable.value;
+        }
+
+        Object combine(Interpreter interpreter, Object left, Object right) {
+            switch (operator) {
+                case "somme":
+                    return interpreter.addition(PLUS, left, right);
+                case "max":
+                    return (Boolean) interpreter.comparison(GREATER_EQUAL, left, right) ? left : right;
+                default:
+                    return (Boolean) interpreter.comparison(LESS_EQUAL, left, right) ? left : right;
+            }
+        }
+    }
+
+    /**
+     * The ParallelLoop task runs the iterations from..to (excluded) of a
+     * 'pour parallele' and returns the partial value of each reduction.
+     * It splits its range in two as long as the pool has few queued tasks,
+     * so the split adapts to how busy the workers are, then runs the rest of
+     * its range in a worker interpreter of its own.
+     */
+    private final class ParallelLoop extends RecursiveTask<Object[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final long from;
+        private final long to;
+        private final int bodyStartIndex;
+        private final List<Reduction> reductions;
+        long statementsExecuted;
+
+        ParallelLoop(String name, long from, long to, int bodyStartIndex, List<Reduction> reductions) {
+            this.name = name;
+            this.from = from;
+            this.to = to;
+            this.bodyStartIndex = bodyStartIndex;
+            this.reductions = reductions;
+        }
+
+        @Override
+        protected Object[] compute() {
+            if (to - from > 1 && getSurplusQueuedTaskCount() < SURPLUS_THRESHOLD) {
+                long middle = (from + to) >>> 1;
+                ParallelLoop right = new ParallelLoop(name, middle, to, bodyStartIndex, reductions);
+                right.fork();
+                ParallelLoop left = new ParallelLoop(name, from, middle, bodyStartIndex, reductions);
+                Object[] partials = left.compute();
+                Object[] rightPartials = right.join();
+                for (int r = 0; r < partials.length; r++) {
+                    partials[r] = reductions.get(r).combine(Interpreter.this, partials[r], rightPartials[r]);
+                }
+                statementsExecuted = left.statementsExecuted + right.statementsExecuted;
+                return partials;
+            }
+            Interpreter worker = new Interpreter(Interpreter.this);
+            for (Reduction reduction : reductions) {
+                Variable variable = environment.get(reduction.variable);
+                worker.environment.put(reduction.variable, new Variable(reduction.identity(variable), variable.type));
+            }
+            for (long i = from; i < to; i++) {
+                worker.environment.put(name, new Variable((int) i, ENTIER));
+                worker.runLoopBody(bodyStartIndex);
+            }
+            Object[] partials = new Object[reductions.size()];
+            for (int r = 0; r < partials.length; r++) {
+                partials[r] = worker.environment.get(reductions.get(r).variable).value;
+            }
+            statementsExecuted = worker.statementsExecuted;
+            return partials;
+        }
+    }
+
+    /**
+     * A Frame is a construct being executed, kept while checkpointing so that a
+     * snapshot can re-enter it: a 'tantque', a sequential 'pour' with its bounds
+     * and current iteration, or the branch of a 'si' that was taken.
+     */
+    static final class Frame {
+        final TokenType type;
+        // The index of the 'tantque', 'pour' or 'si' token
+        final int start;
+        int bodyIndex;
+        int last;
+        int counter;
+        boolean elseBranch;
+
+        Frame(TokenType type, int start) {
+            this.type = type;
+            this.start = start;
+        }
+    }
+
     // A helper class to store variable values and types
-    private static class Variable {
+    static class Variable {
         final Object value;
         final TokenType type;
 
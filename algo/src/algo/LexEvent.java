@@ -0,0 +1,27 @@
+package algo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The LexEvent is a JDK Flight Recorder event covering the scan of a program
+ * by the Lexer. Its duration is the time spent in Lexer.scanTokens.
+ */
+@Name("algo.Lex")
+@Label("Algo Lex")
+@Category({"Algo"})
+@Description("Scan of an algo program into tokens")
+class LexEvent extends Event {
+    @Label("Program")
+    @Description("Name given after 'Algorithme'")
+    String program;
+
+    @Label("Token Count")
+    int tokenCount;
+
+    @Label("Error Count")
+    int errorCount;
+}
@@ -1,59 +1,33 @@
 package algo;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import static algo.TokenType.*;
 
 /**
  * The Lexer class is responsible for scanning the source code and converting it
  * into a list of tokens. It extends the ErrorThrower class to handle errors and logs.
+ * Errors do not stop the scan: they are collected as diagnostics and the lexer
+ * resumes at the next character, so every lexical error is reported in one pass.
  */
 
 public class Lexer extends ErrorThrower {
-	// A map to store keywords and their corresponding token types
-	private static final Map<String, TokenType> keywords;
-
-	  static {
-	    keywords = new HashMap<>();
-	    keywords.put("non",        NOT);
-	    keywords.put("et",         AND);
-	    keywords.put("ou",         OR);
-	    keywords.put("vrai",       TRUE);
-	    keywords.put("faux",       FALSE);
-	    keywords.put("si",         IF);
-	    keywords.put("alors",      THEN);
-	    keywords.put("sinon",      ELSE);
-	    keywords.put("finsi",      END_IF);
-	    keywords.put("Algorithme", ALGO);
-	    keywords.put("TDO",        TDO);
-	    keywords.put("Debut",      BEGIN);
-	    keywords.put("Fin",        END);
-	    keywords.put("entier",     ENTIER);
-	    keywords.put("reel",       REEL);
-	    keywords.put("char",       CHAR);
-	    keywords.put("chaine",     CHAINE);
-	    keywords.put("bool",       BOOL);
-	    keywords.put("tantque",    WHILE);
-	    keywords.put("faire",      DO);
-	    keywords.put("fintantque", END_WHILE);
-	    keywords.put("ecrire",     PRINT);
-	    keywords.put("div",        DIV);
-	    keywords.put("mod",        MOD);
-	  }
-	  
 	  private final String source;
 	  private final List<Token> tokens = new ArrayList<>();
+	  private final List<Diagnostic> diagnostics = new ArrayList<>();
 
 	  private int start = 0;
 	  private int current = 0;
 	  private int line = 1;
+	  // Index of the first character of the current line, used to compute columns
+	  private int lineStart = 0;
+	  private int column = 1;
 
 	  @Override
 	  public void error(String msg) {
-		  throw new RuntimeException("[LEXER] Error at line "+line+" : "+msg);
+		  diagnostics.add(new Diagnostic("LEXER", line, column, null, msg));
 	  }
 	  @Override
 	  public void log(String msg) {
@@ -68,18 +42,25 @@ public class Lexer extends ErrorThrower {
 	  List<Token> scanTokens() {
 	    while (!isAtEnd()) {
 	      start = current;
+	      column = start - lineStart + 1;
 	      scanToken();
 	    }
 
-	    tokens.add(new Token(EOF, "", line));
+	    tokens.add(new Token(EOF, "", line, current - lineStart + 1));
 	    return tokens;
 	  }
+	  // The getDiagnostics method returns the errors found by scanTokens
+	  List<Diagnostic> getDiagnostics() {
+	    return Collections.unmodifiableList(diagnostics);
+	  }
 	  // The scanToken method scans the next token in the source code
 	  private void scanToken() {
 	    char c = advance();
 	    switch (c) {
 	      case '(': addToken(LEFT_PAREN);  break;
 	      case ')': addToken(RIGHT_PAREN); break;
+	      case '[': addToken(LEFT_BRACKET);  break;
+	      case ']': addToken(RIGHT_BRACKET); break;
 	      case '-': addToken(MINUS);       break;
 	      case '+': addToken(PLUS);        break;
 	      case '/': addToken(SLASH);       break;
@@ -105,7 +86,7 @@ public class Lexer extends ErrorThrower {
 	        break;
 
 	      case '\n':
-	        line++;
+	        newLine();
 	        break;
 	      case '"': string(); break;
 	      default:
@@ -123,9 +104,42 @@ public class Lexer extends ErrorThrower {
 	  private void identifier() {
 	    while (isAlphaNumeric(peek())) advance();
 	    String text = source.substring(start, current);
-	    TokenType type = keywords.get(text);
-	    if (type == null) type = IDENTIFIER;
-	    addToken(type);
+	    addToken(keyword(text));
+	  }
+	  // The keyword method maps a reserved word to its token type, or IDENTIFIER.
+	  // A string switch is used instead of a static map so that no table has to be
+	  // built when the class is initialized on the startup path.
+	  private static TokenType keyword(String text) {
+	    switch (text) {
+	      case "non":        return NOT;
+	      case "et":         return AND;
+	      case "ou":         return OR;
+	      case "vrai":       return TRUE;
+	      case "faux":       return FALSE;
+	      case "si":         return IF;
+	      case "alors":      return THEN;
+	      case "sinon":      return ELSE;
+	      case "finsi":      return END_IF;
+	      case "Algorithme": return ALGO;
+	      case "TDO":        return TDO;
+	      case "Debut":      return BEGIN;
+	      case "Fin":        return END;
+	      case "entier":     return ENTIER;
+	      case "reel":       return REEL;
+	      case "char":       return CHAR;
+	      case "chaine":     return CHAINE;
+	      case "bool":       return BOOL;
+	      case "tantque":    return WHILE;
+	      case "faire":      return DO;
+	      case "fintantque": return END_WHILE;
+	      case "pour":       return FOR;
+	      case "parallele":  return PARALLEL;
+	      case "finpour":    return END_FOR;
+	      case "ecrire":     return PRINT;
+	      case "div":        return DIV;
+	      case "mod":        return MOD;
+	      default:           return IDENTIFIER;
+	    }
 	  }
 	  private void number() {
 		    boolean isDouble = false;
@@ -144,20 +158,28 @@ public class Lexer extends ErrorThrower {
 		}
 
 	  private void string() {
+	    // A string is reported at its opening quote, even when it spans lines
+	    int startLine = line;
+	    int startColumn = column;
 	    while (peek() != '"' && !isAtEnd()) {
-	      if (peek() == '\n') line++;
 	      advance();
+	      if (source.charAt(current - 1) == '\n') newLine();
 	    }
 
 	    if (isAtEnd()) {
-			error("Unterminated string.");
+			diagnostics.add(new Diagnostic("LEXER", startLine, startColumn, null, "Unterminated string."));
 			return;
 	    }
 	    advance();
 	    String value = source.substring(start + 1, current - 1);
-	    addToken(STRING, value);
+	    addToken(STRING, value, startLine, startColumn);
 	  }
 	  // The following methods are utility methods used by the lexer
+	  private void newLine() {
+	    line++;
+	    lineStart = current;
+	  }
+
 	  private boolean match(char expected) {
 	    if (isAtEnd()) return false;
 	    if (source.charAt(current) != expected) return false;
@@ -203,12 +225,16 @@ public class Lexer extends ErrorThrower {
 	  }
 
 	  private void addToken(TokenType type, String lexeme) {
+	    addToken(type, lexeme, line, column);
+	  }
+
+	  private void addToken(TokenType type, String lexeme, int line, int column) {
 	    String text = source.substring(start, current);
 	    log("at line "+line+", TokenType:"+type+" "+ text);
 	    if(lexeme==null) {
-	    	tokens.add(new Token(type, text, line));	    	
+	    	tokens.add(new Token(type, text, line, column));	    	
 	    }else {
-	    	tokens.add(new Token(type, lexeme, line));
+	    	tokens.add(new Token(type, lexeme, line, column));
 	    }
 	  }
 
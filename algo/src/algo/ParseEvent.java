@@ -0,0 +1,27 @@
+package algo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The ParseEvent is a JDK Flight Recorder event covering the syntax check of
+ * a program by the Parser.
+ */
+@Name("algo.Parse")
+@Label("Algo Parse")
+@Category({"Algo"})
+@Description("Syntax check of an algo program")
+class ParseEvent extends Event {
+    @Label("Program")
+    @Description("Name given after 'Algorithme'")
+    String program;
+
+    @Label("Token Count")
+    int tokenCount;
+
+    @Label("Error Count")
+    int errorCount;
+}
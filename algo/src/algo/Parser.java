@@ -0,0 +1,510 @@
+package algo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static algo.TokenType.*;
+
+/**
+ * The Parser class checks the syntax of a program before it is executed.
+ * It follows the same grammar as the Interpreter but evaluates nothing, so it
+ * also visits the branches and loop bodies that an execution would skip.
+ * On an error it records a diagnostic, skips to the next statement boundary
+ * and carries on, so that all syntax errors of a file are found in one pass.
+ * It also checks that the body of a 'pour parallele' only assigns the
+ * reduction variables of the loop, in forms whose result does not depend on
+ * the order of the iterations, since they run concurrently.
+ */
+public class Parser extends ErrorThrower {
+    // Unwinds the parser to the enclosing statement after an error.
+    // It is stackless and shared, so recovering from an error costs no allocation.
+    private static final RuntimeException SYNC = new RuntimeException("sync", null, false, false) {
+        private static final long serialVersionUID = 1L;
+    };
+
+    // The binary operators, from the lowest to the highest precedence. This is
+    // the precedence of the Interpreter, the ExpressionCompiler uses it too.
+    static final TokenType[][] OPERATORS = {
+        {OR},
+        {AND},
+        {EQUAL, BANG_EQUAL},
+        {LESS, GREATER, LESS_EQUAL, GREATER_EQUAL, EQUAL},
+        {PLUS, MINUS},
+        {STAR, SLASH, DIV, MOD},
+    };
+
+    private final List<Token> tokens;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    // The variables declared in the TDO section and their types
+    private final Map<String, TokenType> declared = new HashMap<>();
+    // The reductions of the 'pour parallele' being parsed, by variable, or null
+    private Map<String, String> reductions = null;
+    // The indexes of the reduction variable tokens that are part of an allowed update:
+    // the s read in s <- s + ..., the m read and assigned in si e > m alors m <- e; finsi
+    private final Set<Integer> allowedReductionTokens = new HashSet<>();
+    private Token currentToken;
+    private int currentIndex = 0;
+
+    @Override
+    public void error(String msg) {
+        diagnostics.add(Diagnostic.at("PARSER", currentToken, msg));
+        throw SYNC;
+    }
+
+    @Override
+    public void log(String msg) {
+        System.err.println("[PARSER] " + msg);
+    }
+
+    Parser(List<Token> tokens) {
+        this.tokens = tokens;
+        this.currentToken = tokens.get(0);
+    }
+
+    // The parse method checks the whole program and returns the errors found
+    List<Diagnostic> parse() {
+        try {
+            consume(ALGO, "Expected 'Algorithme' at the start of the program.");
+            consume(IDENTIFIER, "Expected program name after 'Algorithme'.");
+            consume(TDO, "Expected 'TDO' after program name.");
+        } catch (RuntimeException e) {
+            if (e != SYNC) throw e;
+            synchronize(currentIndex);
+        }
+        parseDeclarations();
+        if (!match(BEGIN)) {
+            report("Expected 'Debut' to start program body.");
+        }
+        parseBlock(END);
+        if (!match(END)) {
+            report("Expected  'Fin'");
+        }
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    // The following methods are utility methods used by the parser
+    private void advance() {
+        if (currentIndex < tokens.size() - 1) {
+            currentIndex++;
+            currentToken = tokens.get(currentIndex);
+        }
+    }
+
+    private Token previous() {
+        return tokens.get(currentIndex - 1);
+    }
+
+    private boolean check(TokenType... types) {
+        for (TokenType type : types) {
+            if (currentToken.type == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean match(TokenType... types) {
+        if (check(types)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    private Token consume(TokenType type, String errorMessage) {
+        if (currentToken.type == type) {
+            Token token = currentToken;
+            advance();
+            return token;
+        }
+        error(errorMessage);
+        return null;
+    }
+
+    // Records an error without unwinding
+    private void report(String msg) {
+        diagnostics.add(Diagnostic.at("PARSER", currentToken, msg));
+    }
+
+    // The synchronize method skips tokens up to the next statement boundary.
+    // A ';' is consumed, a keyword that starts or closes a statement is not.
+    // If the failed statement did not consume anything, at least one token is
+    // skipped so that the parser always makes progress.
+    private void synchronize(int statementStart) {
+        log("Recovering from error at line " + currentToken.line);
+        if (currentIndex == statementStart && !check(EOF)) {
+            advance();
+        }
+        while (!check(EOF)) {
+            if (match(SEMICOLON)) {
+                return;
+            }
+            if (check(PRINT, IF, WHILE, FOR, ELSE, END_IF, END_WHILE, END_FOR, BEGIN, END)) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    private void parseDeclarations() {
+        while (check(IDENTIFIER)) {
+            int statementStart = currentIndex;
+            try {
+                String name = consume(IDENTIFIER, "Expected variable name.").lexeme;
+                consume(COLON, "Expected ':' after " + name + ".");
+                if (!match(ENTIER, REEL, BOOL, CHAINE, CHAR)) {
+                    error("Expected Type after ':'");
+                }
+                declared.put(name, previous().type);
+                consume(SEMICOLON, "Expected ';' after " + previous().lexeme + ".");
+            } catch (RuntimeException e) {
+                if (e != SYNC) throw e;
+                synchronize(statementStart);
+            }
+        }
+    }
+
+    // The parseBlock method parses statements until one of the given terminators
+    private void parseBlock(TokenType... terminators) {
+        while (!check(terminators) && !check(END, EOF)) {
+            int statementStart = currentIndex;
+            try {
+                parseStatement();
+            } catch (RuntimeException e) {
+                if (e != SYNC) throw e;
+                synchronize(statementStart);
+            }
+        }
+    }
+
+    private void parseStatement() {
+        if (match(PRINT)) {
+            if (reductions != null) {
+                diagnostics.add(Diagnostic.at("PARSER", previous(),
+                        "ecrire is not allowed in a 'pour parallele' body, its iterations run in any order."));
+            }
+            consume(LEFT_PAREN, "Expected '(' after ecrire");
+            boolean first = true;
+            while (!match(RIGHT_PAREN)) {
+                if (!first) {
+                    consume(COMMA, "Expected ',' between expressions.");
+                }
+                parseExpression();
+                first = false;
+            }
+            consume(SEMICOLON, "Expected ';' after print statement.");
+        } else if (match(IF)) {
+            if (reductions != null) {
+                allowExtremumUpdate();
+            }
+            parseCondition(THEN, "Expected 'alors' after condition.");
+            parseBlock(ELSE, END_IF);
+            if (match(ELSE)) {
+                parseBlock(END_IF);
+            }
+            consume(END_IF, "Expected 'finsi' to close the if block.");
+        } else if (match(WHILE)) {
+            parseCondition(DO, "Expected 'faire' after condition.");
+            parseBlock(END_WHILE);
+            consume(END_WHILE, "Expected 'fintantque' to close the while block.");
+        } else if (match(FOR)) {
+            parseForStatement();
+        } else if (match(IDENTIFIER)) {
+            Token target = previous();
+            int targetIndex = currentIndex - 1;
+            consume(LESS_MINUS, "Expected '<-' after " + target.lexeme);
+            checkDeclared(target, target.lexeme);
+            if (reductions != null) {
+                checkParallelAssign(target, targetIndex);
+            }
+            parseExpression();
+            consume(SEMICOLON, "Expected ';' after variable declaration.");
+        } else {
+            parseExpression();
+            consume(SEMICOLON, "Expected ';' after expression.");
+        }
+    }
+
+    // The parseForStatement method parses a 'pour' or a 'pour parallele'
+    private void parseForStatement() {
+        boolean parallel = match(PARALLEL);
+        Token variable = consume(IDENTIFIER, "Expected loop variable after 'pour'.");
+        checkDeclared(variable, variable.lexeme);
+        if (declared.containsKey(variable.lexeme) && declared.get(variable.lexeme) != ENTIER) {
+            diagnostics.add(Diagnostic.at("PARSER", variable, "Loop variable " + variable.lexeme + " must be an entier variable."));
+        }
+        if (reductions != null) {
+            diagnostics.add(Diagnostic.at("PARSER", variable, "Cannot use shared variable " + variable.lexeme
+                    + " as a loop variable in a 'pour parallele' body."));
+        }
+        consumeWord("de", "Expected 'de' after loop variable.");
+        parseExpression();
+        consumeWord("a", "Expected 'a' after first bound.");
+        parseExpression();
+        Map<String, String> loopReductions = new HashMap<>();
+        while (parallel && check(IDENTIFIER) && isReduction(currentToken.lexeme)) {
+            String operator = currentToken.lexeme;
+            advance();
+            Token reduced = consume(IDENTIFIER, "Expected variable after " + operator + ".");
+            checkDeclared(reduced, reduced.lexeme);
+            TokenType type = declared.get(reduced.lexeme);
+            if (type != null && type != ENTIER && type != REEL) {
+                diagnostics.add(Diagnostic.at("PARSER", reduced, "Reduction variable " + reduced.lexeme
+                        + " must be an entier or reel variable."));
+            }
+            if (reduced.lexeme.equals(variable.lexeme) || loopReductions.put(reduced.lexeme, operator) != null) {
+                diagnostics.add(Diagnostic.at("PARSER", reduced, "Variable " + reduced.lexeme
+                        + " cannot be reduced more than once, nor be the loop variable."));
+            }
+        }
+        consume(DO, "Expected 'faire' after bounds.");
+        Map<String, String> enclosing = reductions;
+        if (parallel) {
+            reductions = loopReductions;
+        }
+        try {
+            parseBlock(END_FOR);
+        } finally {
+            reductions = enclosing;
+        }
+        consume(END_FOR, "Expected 'finpour' to close the for block.");
+    }
+
+    private static boolean isReduction(String word) {
+        return word.equals("somme") || word.equals("max") || word.equals("min");
+    }
+
+    private void consumeWord(String word, String errorMessage) {
+        if (!check(IDENTIFIER) || !currentToken.lexeme.equals(word)) {
+            error(errorMessage);
+        }
+        advance();
+    }
+
+    // Matches a built-in like longueur, which is an identifier followed by '('.
+    // The name is not reserved: a variable is never followed by '(', so programs
+    // can still have a variable named longueur.
+    private boolean matchBuiltIn(String name) {
+        if (check(IDENTIFIER) && currentToken.lexeme.equals(name) && tokens.get(currentIndex + 1).type == LEFT_PAREN) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    // The checkParallelAssign method checks an assignment in a 'pour parallele' body.
+    // Only reduction variables can be assigned, and a somme must be updated as
+    // s <- s + expression, without being read anywhere else, so that the
+    // partial sums of the iterations can be added in any order. A max or a min
+    // can only be assigned by the update allowExtremumUpdate recognized.
+    private void checkParallelAssign(Token target, int targetIndex) {
+        String operator = reductions.get(target.lexeme);
+        if (operator == null) {
+            diagnostics.add(Diagnostic.at("PARSER", target, "Cannot assign shared variable " + target.lexeme
+                    + " in a 'pour parallele' body, only its reduction variables can be assigned."));
+        } else if (operator.equals("somme")) {
+            if (currentToken.type == IDENTIFIER && currentToken.lexeme.equals(target.lexeme)
+                    && tokens.get(currentIndex + 1).type == PLUS) {
+                allowedReductionTokens.add(currentIndex);
+            } else {
+                diagnostics.add(Diagnostic.at("PARSER", target, "A somme reduction must be updated as "
+                        + target.lexeme + " <- " + target.lexeme + " + expression."));
+            }
+        } else if (!allowedReductionTokens.contains(targetIndex)) {
+            String comparison = operator.equals("max") ? " > " : " < ";
+            diagnostics.add(Diagnostic.at("PARSER", target, "A " + operator + " reduction must be updated as si e"
+                    + comparison + target.lexeme + " alors " + target.lexeme + " <- e; finsi."));
+        }
+    }
+
+    // The allowExtremumUpdate method recognizes, at the condition of a 'si' in a
+    // 'pour parallele' body, the update of a max or min reduction m:
+    //   si e > m alors m <- e; finsi      (or m < e, and >=, <=; reversed for a min)
+    // where both e are the same tokens. Whatever the order of the iterations, m
+    // ends as the largest (smallest) of its value before the loop and the e
+    // seen, which is how the partial results are combined. The tokens of m in
+    // the update are allowed; any other read or assignment of m is reported.
+    private void allowExtremumUpdate() {
+        int then = currentIndex;
+        int depth = 0;
+        int comparisonIndex = -1;
+        for (; then < tokens.size(); then++) {
+            TokenType type = tokens.get(then).type;
+            if (type == LEFT_PAREN || type == LEFT_BRACKET) {
+                depth++;
+            } else if (type == RIGHT_PAREN || type == RIGHT_BRACKET) {
+                depth--;
+            } else if (depth == 0 && (type == THEN || type == SEMICOLON || type == EOF)) {
+                break;
+            } else if (depth == 0 && (type == LESS || type == GREATER || type == LESS_EQUAL
+                    || type == GREATER_EQUAL || type == EQUAL || type == BANG_EQUAL
+                    || type == AND || type == OR)) {
+                if (comparisonIndex != -1) {
+                    return;
+                }
+                comparisonIndex = then;
+            }
+        }
+        // si <condition> alors m <- <value> ; finsi
+        if (comparisonIndex == -1 || tokens.get(then).type != THEN || then + 3 >= tokens.size()) {
+            return;
+        }
+        Token target = tokens.get(then + 1);
+        String operator = target.type == IDENTIFIER ? reductions.get(target.lexeme) : null;
+        if (operator == null || operator.equals("somme") || tokens.get(then + 2).type != LESS_MINUS) {
+            return;
+        }
+        int valueStart = then + 3;
+        int semicolon = valueStart;
+        while (semicolon < tokens.size() && tokens.get(semicolon).type != SEMICOLON
+                && tokens.get(semicolon).type != EOF) {
+            semicolon++;
+        }
+        if (semicolon + 1 >= tokens.size() || tokens.get(semicolon).type != SEMICOLON
+                || tokens.get(semicolon + 1).type != END_IF) {
+            return;
+        }
+        // The reduction is on one side of the comparison, the value on the other
+        TokenType comparison = tokens.get(comparisonIndex).type;
+        boolean growing = comparison == GREATER || comparison == GREATER_EQUAL;
+        boolean shrinking = comparison == LESS || comparison == LESS_EQUAL;
+        int reduced;
+        int otherStart;
+        int otherEnd;
+        if (comparisonIndex + 2 == then && isToken(comparisonIndex + 1, target)) {
+            // e > m
+            reduced = comparisonIndex + 1;
+            otherStart = currentIndex;
+            otherEnd = comparisonIndex;
+        } else if (comparisonIndex == currentIndex + 1 && isToken(currentIndex, target)) {
+            // m < e
+            reduced = currentIndex;
+            otherStart = comparisonIndex + 1;
+            otherEnd = then;
+            boolean reversed = growing;
+            growing = shrinking;
+            shrinking = reversed;
+        } else {
+            return;
+        }
+        if (!(operator.equals("max") ? growing : shrinking) || !sameTokens(otherStart, otherEnd, valueStart, semicolon)) {
+            return;
+        }
+        allowedReductionTokens.add(reduced);
+        allowedReductionTokens.add(then + 1);
+    }
+
+    private boolean isToken(int index, Token variable) {
+        Token token = tokens.get(index);
+        return token.type == IDENTIFIER && token.lexeme.equals(variable.lexeme);
+    }
+
+    // Tells whether the tokens from..to (excluded) of two ranges are the same
+    private boolean sameTokens(int from, int to, int otherFrom, int otherTo) {
+        if (to - from != otherTo - otherFrom || to == from) {
+            return false;
+        }
+        for (int i = 0; i < to - from; i++) {
+            Token token = tokens.get(from + i);
+            Token other = tokens.get(otherFrom + i);
+            if (token.type != other.type || !token.lexeme.equals(other.lexeme)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The parseCondition method parses the condition of a 'si' or a 'tantque'.
+    // An error in the condition skips to the keyword that opens the body, so
+    // that the body is still checked instead of being parsed as outer statements.
+    private void parseCondition(TokenType opening, String errorMessage) {
+        try {
+            parseExpression();
+            consume(opening, errorMessage);
+        } catch (RuntimeException e) {
+            if (e != SYNC) throw e;
+            while (!check(opening, SEMICOLON, END, EOF)) {
+                advance();
+            }
+            match(opening);
+        }
+    }
+
+    private void checkDeclared(Token token, String name) {
+        if (!declared.containsKey(name)) {
+            diagnostics.add(Diagnostic.at("PARSER", token, "Undefined variable: " + name));
+        }
+    }
+
+    // These methods follow the operator precedence of the Interpreter
+    private void parseExpression() {
+        parseBinary(0);
+    }
+
+    private void parseBinary(int level) {
+        if (level == OPERATORS.length) {
+            parseUnary();
+            return;
+        }
+        parseBinary(level + 1);
+        while (match(OPERATORS[level])) {
+            parseBinary(level + 1);
+        }
+    }
+
+    private void parseUnary() {
+        match(MINUS);
+        parsePrimary();
+    }
+
+    private void parsePrimary() {
+        parseOperand();
+        while (match(LEFT_BRACKET)) {
+            parseExpression();
+            consume(RIGHT_BRACKET, "Expected ']' after index.");
+        }
+    }
+
+    private void parseOperand() {
+        if (matchBuiltIn("longueur")) {
+            consume(LEFT_PAREN, "Expected '(' after longueur");
+            parseExpression();
+            consume(RIGHT_PAREN, "Expected ')' after argument.");
+            return;
+        }
+        if (matchBuiltIn("sous_chaine")) {
+            consume(LEFT_PAREN, "Expected '(' after sous_chaine");
+            parseExpression();
+            consume(COMMA, "Expected ',' between arguments.");
+            parseExpression();
+            consume(COMMA, "Expected ',' between arguments.");
+            parseExpression();
+            consume(RIGHT_PAREN, "Expected ')' after arguments.");
+            return;
+        }
+        if (match(ENTIER_NUMBER, REEL_NUMBER, STRING, TRUE, FALSE)) {
+            return;
+        }
+        if (match(LEFT_PAREN)) {
+            parseExpression();
+            consume(RIGHT_PAREN, "Expected ')' after expression.");
+            return;
+        }
+        if (match(IDENTIFIER)) {
+            Token variable = previous();
+            checkDeclared(variable, variable.lexeme);
+            String reduction = reductions == null ? null : reductions.get(variable.lexeme);
+            if (reduction != null && !allowedReductionTokens.contains(currentIndex - 1)) {
+                diagnostics.add(Diagnostic.at("PARSER", variable, "The " + reduction + " reduction " + variable.lexeme
+                        + " cannot be read in a 'pour parallele' body."));
+            }
+            return;
+        }
+        error("Expected an expression.");
+    }
+}
@@ -0,0 +1,37 @@
+package algo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The PolymorphicSiteEvent is a JDK Flight Recorder event emitted when an
+ * operator node of the specializing mode sees operand types that break its
+ * specialization and falls back to the generic path.
+ */
+@Name("algo.PolymorphicSite")
+@Label("Algo Polymorphic Site")
+@Category({"Algo"})
+@Description("Operator whose operand types changed during execution")
+class PolymorphicSiteEvent extends Event {
+    @Label("Line")
+    int line;
+
+    @Label("Column")
+    int column;
+
+    @Label("Operator")
+    String operator;
+
+    @Label("Specialization")
+    @Description("Specialization that was abandoned")
+    String specialization;
+
+    @Label("Left Type")
+    String leftType;
+
+    @Label("Right Type")
+    String rightType;
+}
@@ -0,0 +1,199 @@
+package algo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static algo.TokenType.*;
+
+/**
+ * The Snapshot class is the execution state saved by a checkpoint: the hash
+ * of the program, how many bytes ecrire had printed, the constructs being
+ * executed from the outermost to the loop whose back-edge was reached, and
+ * the values of the variables.
+ *
+ * The binary format is a magic number and a version, then these fields
+ * written with a DataOutputStream. Values are tagged with their Java type,
+ * so entiers keep being Integers, Longs or BigIntegers; chaines are saved
+ * as UTF-8 and come back as Strings.
+ */
+final class Snapshot {
+    private static final int MAGIC = 0x414c474f; // "ALGO"
+    private static final short VERSION = 1;
+    // The declared types, saved as their index
+    private static final TokenType[] TYPES = {ENTIER, REEL, BOOL, CHAINE, CHAR};
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte BIG_INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte STRING = 6;
+
+    final byte[] programHash;
+    final long outputOffset;
+    final long statementsExecuted;
+    final List<Interpreter.Frame> frames;
+    final Map<String, Interpreter.Variable> variables;
+
+    Snapshot(byte[] programHash, long outputOffset, long statementsExecuted,
+             List<Interpreter.Frame> frames, Map<String, Interpreter.Variable> variables) {
+        this.programHash = programHash;
+        this.outputOffset = outputOffset;
+        this.statementsExecuted = statementsExecuted;
+        this.frames = frames;
+        this.variables = variables;
+    }
+
+    // The write method replaces file with this snapshot. It writes a temporary
+    // file next to it, syncs it and moves it over file, so that a crash leaves
+    // either the previous snapshot or this one.
+    void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(programHash.length);
+            out.write(programHash);
+            out.writeLong(outputOffset);
+            out.writeLong(statementsExecuted);
+            out.writeInt(frames.size());
+            for (Interpreter.Frame frame : frames) {
+                writeFrame(out, frame);
+            }
+            out.writeInt(variables.size());
+            for (Map.Entry<String, Interpreter.Variable> entry : variables.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeByte(typeIndex(entry.getValue().type));
+                writeValue(out, entry.getValue().value);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // The read method reads the snapshot saved in file
+    static Snapshot read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException(file + " is not an algo snapshot of version " + VERSION);
+            }
+            byte[] programHash = new byte[in.readShort()];
+            in.readFully(programHash);
+            long outputOffset = in.readLong();
+            long statementsExecuted = in.readLong();
+            int frameCount = in.readInt();
+            List<Interpreter.Frame> frames = new ArrayList<>(frameCount);
+            for (int i = 0; i < frameCount; i++) {
+                frames.add(readFrame(in));
+            }
+            int variableCount = in.readInt();
+            Map<String, Interpreter.Variable> variables = new LinkedHashMap<>();
+            for (int i = 0; i < variableCount; i++) {
+                String name = in.readUTF();
+                TokenType type = TYPES[in.readByte()];
+                variables.put(name, new Interpreter.Variable(readValue(in), type));
+            }
+            return new Snapshot(programHash, outputOffset, statementsExecuted, frames, variables);
+        }
+    }
+
+    private static void writeFrame(DataOutputStream out, Interpreter.Frame frame) throws IOException {
+        out.writeByte(frame.type == WHILE ? 'W' : frame.type == FOR ? 'F' : 'I');
+        out.writeInt(frame.start);
+        if (frame.type == FOR) {
+            out.writeInt(frame.bodyIndex);
+            out.writeInt(frame.last);
+            out.writeInt(frame.counter);
+        } else if (frame.type == IF) {
+            out.writeBoolean(frame.elseBranch);
+        }
+    }
+
+    private static Interpreter.Frame readFrame(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        TokenType type = kind == 'W' ? WHILE : kind == 'F' ? FOR : IF;
+        Interpreter.Frame frame = new Interpreter.Frame(type, in.readInt());
+        if (type == FOR) {
+            frame.bodyIndex = in.readInt();
+            frame.last = in.readInt();
+            frame.counter = in.readInt();
+        } else if (type == IF) {
+            frame.elseBranch = in.readBoolean();
+        }
+        return frame;
+    }
+
+    private static int typeIndex(TokenType type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i] == type) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a variable type: " + type);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof BigInteger) {
+            byte[] bytes = ((BigInteger) value).toByteArray();
+            out.writeByte(BIG_INTEGER);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            // writeUTF is limited to 64KB, chaines can be longer
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL: return null;
+            case INT: return in.readInt();
+            case LONG: return in.readLong();
+            case BIG_INTEGER: return new BigInteger(readBytes(in));
+            case DOUBLE: return in.readDouble();
+            case BOOLEAN: return in.readBoolean();
+            case STRING: return new String(readBytes(in), StandardCharsets.UTF_8);
+            default: throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -2,17 +2,19 @@ package algo;
 /**
  * The Token class represents a single token produced by the lexer.
  * Each token has a type (defined by the TokenType enum), the actual
- * text (lexeme) that was matched, and the line number in the source
+ * text (lexeme) that was matched, and the line and column in the source
  * code where the token was found (for error messages and debugging purposes).
  */
 public class Token {
     final TokenType type;
     final String lexeme;
     final int line;
-    Token(TokenType type, String lexeme, int line) {
+    final int column;
+    Token(TokenType type, String lexeme, int line, int column) {
         this.type = type;
         this.lexeme = lexeme;
         this.line = line;
+        this.column = column;
     }
 
     public String toString() {
@@ -5,7 +5,7 @@ package algo;
  * the input text into meaningful symbols for the parser.
  */
 public enum TokenType {
-	  LEFT_PAREN, RIGHT_PAREN,
+	  LEFT_PAREN, RIGHT_PAREN, LEFT_BRACKET, RIGHT_BRACKET,
 	  MINUS, PLUS, SEMICOLON, SLASH, STAR,
 	  COLON, COMMA,
 
@@ -21,6 +21,7 @@ public enum TokenType {
 	  NOT, AND, OR,
 	  TRUE, FALSE,
 	  WHILE, DO, END_WHILE,
+	  FOR, PARALLEL, END_FOR,
 	  PRINT, DIV, MOD,
 
 	  EOF
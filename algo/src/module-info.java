@@ -1,9 +1,14 @@
 /**
- * 
- */
-/**
- * 
+ * The algo module contains the lexer and interpreter of the algo language.
+ * Besides java.base it only reads the modules needed for monitoring: jdk.jfr
+ * for the flight recorder events and java.management for the JMX metrics.
+ * These two give back part of what dropping java.desktop saved at start-up,
+ * as their modules are resolved on every run even when nothing is monitored.
+ * The package is only exported to java.management, which reads the MBean.
  */
 module algo {
-	requires java.desktop;
+	requires jdk.jfr;
+	requires java.management;
+
+	exports algo to java.management;
 }
\ No newline at end of file